@@ -6,15 +6,93 @@ group = "org.example"
 version = "1.0-SNAPSHOT"
 
 val jUnitVersion = "5.7.0"
+val junitPlatformVersion = "1.7.0"
+val jmhVersion = "1.26"
+
+java {
+    toolchain {
+        languageVersion.set(JavaLanguageVersion.of(17))
+    }
+}
 
 repositories {
     mavenCentral()
 }
 
+sourceSets {
+    // The annotation processor lives apart from the library, so that it only runs for projects that ask for it
+    // through annotationProcessor, rather than on every compile that has the library on its classpath.
+    create("processor") {
+        compileClasspath += sourceSets["main"].output
+        runtimeClasspath += sourceSets["main"].output
+    }
+    create("jmh") {
+        compileClasspath += sourceSets["main"].output
+        runtimeClasspath += sourceSets["main"].output
+    }
+}
+
 dependencies {
     testImplementation("org.junit.jupiter", "junit-jupiter", jUnitVersion)
+    // Gradle no longer ships a JUnit Platform launcher of its own.
+    testRuntimeOnly("org.junit.platform", "junit-platform-launcher", junitPlatformVersion)
+    // Generates the parsers of the @CommandLine classes under test.
+    testAnnotationProcessor(sourceSets["processor"].output)
+    testAnnotationProcessor(sourceSets["main"].output)
+
+    "jmhImplementation"("org.openjdk.jmh", "jmh-core", jmhVersion)
+    "jmhAnnotationProcessor"("org.openjdk.jmh", "jmh-generator-annprocess", jmhVersion)
 }
 
 tasks.withType<Test> {
     useJUnitPlatform()
 }
+
+// Allocation budgets depend on what the JIT has seen, so other tests in the same JVM would skew them.
+tasks.test {
+    useJUnitPlatform {
+        excludeTags("allocation")
+    }
+}
+
+val allocationTest = tasks.register<Test>("allocationTest") {
+    description = "Runs the allocation budget tests, each class in a JVM of its own."
+    group = "verification"
+    testClassesDirs = sourceSets["test"].output.classesDirs
+    classpath = sourceSets["test"].runtimeClasspath
+    useJUnitPlatform {
+        includeTags("allocation")
+    }
+    forkEvery = 1
+    shouldRunAfter(tasks.test)
+}
+
+tasks.check {
+    dependsOn(allocationTest)
+}
+
+// The processor artifact, used as annotationProcessor(...) next to the library.
+val processorJar = tasks.register<Jar>("processorJar") {
+    group = "build"
+    description = "Assembles the jar with the @CommandLine annotation processor."
+    archiveClassifier.set("processor")
+    from(sourceSets["processor"].output)
+}
+
+tasks.assemble {
+    dependsOn(processorJar)
+}
+
+// java -jar build/libs/argumentParser-1.0-SNAPSHOT-jmh.jar [JMH options]
+tasks.register<Jar>("jmhJar") {
+    group = "benchmark"
+    description = "Assembles an executable jar with the JMH benchmarks."
+    archiveClassifier.set("jmh")
+    manifest {
+        attributes("Main-Class" to "org.example.argumentparser.benchmark.BenchmarkRunner")
+    }
+    duplicatesStrategy = DuplicatesStrategy.EXCLUDE
+    from(sourceSets["jmh"].output)
+    from(sourceSets["main"].output)
+    from({ configurations["jmhRuntimeClasspath"].filter { it.name.endsWith(".jar") }.map { zipTree(it) } })
+}
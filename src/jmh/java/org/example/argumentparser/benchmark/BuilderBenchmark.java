@@ -0,0 +1,41 @@
+package org.example.argumentparser.benchmark;
+
+import org.example.argumentparser.ArgumentParser;
+import org.example.argumentparser.ArgumentParserBuilder;
+import org.example.argumentparser.Flag;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+@BenchmarkMode({Mode.Throughput, Mode.AverageTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class BuilderBenchmark {
+
+    @Param({"10", "1000", "10000"})
+    private int flagCount;
+
+    private Flag[] flags;
+
+    @Setup
+    public void setUp() {
+        flags = Schemas.flags(flagCount);
+    }
+
+    @Benchmark
+    public ArgumentParserBuilder addFlag() {
+        var builder = ArgumentParserBuilder.newBuilder("bench");
+        for (Flag flag : flags) {
+            builder.addFlag(flag);
+        }
+        return builder;
+    }
+
+    @Benchmark
+    public ArgumentParser build() {
+        return addFlag().build();
+    }
+}
@@ -0,0 +1,104 @@
+package org.example.argumentparser.benchmark;
+
+import org.example.argumentparser.ArgumentParser;
+import org.example.argumentparser.ArgumentParserBuilder;
+import org.example.argumentparser.Flag;
+import org.example.argumentparser.FlagBuilder;
+import org.example.argumentparser.ParseResult;
+import org.openjdk.jmh.annotations.*;
+
+import java.net.URI;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+@BenchmarkMode({Mode.Throughput, Mode.AverageTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ConverterBenchmark {
+
+    private ArgumentParser parser;
+    private String[] args;
+
+    private Flag.OptionalFlagWithValue<Integer> boxedThreads;
+    private Flag.IntFlag threads;
+    private ParseResult result;
+
+    @Setup
+    public void setUp() {
+        boxedThreads = FlagBuilder.newBuilder("-t", "Worker threads.")
+                .useLongName("--threads")
+                .requireValue()
+                .useConverter(Integer::parseInt)
+                .build();
+        threads = FlagBuilder.newBuilder("-w", "Worker threads, unboxed.")
+                .useLongName("--workers")
+                .requireValue()
+                .useIntValue(1)
+                .build();
+        var maxBytes = FlagBuilder.newBuilder("-m", "Maximum bytes.")
+                .useLongName("--max_bytes")
+                .requireValue()
+                .useConverter(Long::parseLong)
+                .build();
+        var ratio = FlagBuilder.newBuilder("-r", "Sampling ratio.")
+                .useLongName("--ratio")
+                .requireValue()
+                .useConverter(Double::parseDouble)
+                .build();
+        var timeout = FlagBuilder.newBuilder("-T", "Request timeout.")
+                .useLongName("--timeout")
+                .requireValue()
+                .useConverter(Duration::parse)
+                .build();
+        var endpoint = FlagBuilder.newBuilder("-e", "Upstream endpoint.")
+                .useLongName("--endpoint")
+                .requireValue()
+                .useConverter(URI::create)
+                .build();
+        var output = FlagBuilder.newBuilder("-o", "Output directory.")
+                .useLongName("--output")
+                .requireValue()
+                .useConverter(Path::of)
+                .build();
+        var hosts = FlagBuilder.newBuilder("-H", "Comma separated hosts.")
+                .useLongName("--hosts")
+                .requireValue()
+                .useConverter(value -> Arrays.asList(value.split(",")))
+                .build();
+
+        parser = ArgumentParserBuilder.newBuilder("bench")
+                .addFlags(boxedThreads, threads, maxBytes, ratio, timeout, endpoint, output, hosts)
+                .build();
+        args = new String[] {
+                "--threads", "16",
+                "--workers", "16",
+                "--max_bytes", "17179869184",
+                "--ratio", "0.125",
+                "--timeout", "PT30S",
+                "--endpoint", "https://example.org:8443/api/v1",
+                "--output", "/var/tmp/bench/output",
+                "--hosts", "alpha.local,beta.local,gamma.local,delta.local",
+        };
+        result = parser.parse(args);
+    }
+
+    @Benchmark
+    public ParseResult parse() {
+        return parser.parse(args);
+    }
+
+    @Benchmark
+    public int readBoxedInt() {
+        return result.getValue(boxedThreads).orElse(1);
+    }
+
+    @Benchmark
+    public int readInt() {
+        return result.getInt(threads);
+    }
+}
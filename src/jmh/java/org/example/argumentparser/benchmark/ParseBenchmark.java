@@ -0,0 +1,71 @@
+package org.example.argumentparser.benchmark;
+
+import org.example.argumentparser.ArgumentParser;
+import org.example.argumentparser.ArgumentParserBuilder;
+import org.example.argumentparser.ParseResult;
+import org.example.argumentparser.PositionalArgument;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+@BenchmarkMode({Mode.Throughput, Mode.AverageTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ParseBenchmark {
+
+    @Param({"10", "1000", "10000"})
+    private int flagCount;
+
+    @Param({"SHORT", "LONG", "VALUED", "POSITIONAL"})
+    private String tokenMix;
+
+    @Param({"1000"})
+    private int tokenCount;
+
+    private ArgumentParser parser;
+    private String[] args;
+
+    @Setup
+    public void setUp() {
+        var builder = ArgumentParserBuilder.newBuilder("bench")
+                .addFlags(Schemas.flags(flagCount));
+        args = new String[tokenCount];
+        int switches = flagCount / 2;
+        switch (tokenMix) {
+            case "SHORT":
+                int shortSwitches = Math.min(flagCount, Schemas.SHORT_NAMES.length()) / 2;
+                for (int i = 0; i < tokenCount; i++) {
+                    args[i] = "-" + Schemas.SHORT_NAMES.charAt(2 * (i % shortSwitches));
+                }
+                break;
+            case "LONG":
+                for (int i = 0; i < tokenCount; i++) {
+                    args[i] = "--" + Schemas.longName(2 * (i % switches));
+                }
+                break;
+            case "VALUED":
+                for (int i = 0; i + 1 < tokenCount; i += 2) {
+                    args[i] = "--" + Schemas.longName(2 * ((i / 2) % switches) + 1);
+                    args[i + 1] = "value_" + i;
+                }
+                break;
+            case "POSITIONAL":
+                for (int i = 0; i < tokenCount; i++) {
+                    builder.addPositionalArgument(new PositionalArgument("input_" + i, "Input number " + i + "."));
+                    args[i] = "/tmp/input/" + i;
+                }
+                break;
+            default:
+                throw new IllegalArgumentException("Unknown token mix: " + tokenMix);
+        }
+        parser = builder.build();
+    }
+
+    @Benchmark
+    public ParseResult parse() {
+        return parser.parse(args);
+    }
+}
@@ -0,0 +1,31 @@
+package org.example.argumentparser.benchmark;
+
+import org.example.argumentparser.Flag;
+import org.example.argumentparser.FlagBuilder;
+
+final class Schemas {
+
+    // Every usable short name, i.e. [a-zA-Z0-9] without the reserved -h.
+    static final String SHORT_NAMES = "abcdefgijklmnopqrstuvwxyzABCDEFGHIJKLMNOPQRSTUVWXYZ0123456789";
+
+    private Schemas() {
+    }
+
+    // Flags with an even ordinal are switches, flags with an odd ordinal take a value. The first ones
+    // also get a short name for as long as there are short names left.
+    static Flag[] flags(int count) {
+        var flags = new Flag[count];
+        for (int i = 0; i < count; i++) {
+            var description = "Generated flag number " + i + ".";
+            var builder = i < SHORT_NAMES.length()
+                    ? FlagBuilder.newBuilder("-" + SHORT_NAMES.charAt(i), description).useLongName("--" + longName(i))
+                    : FlagBuilder.newLongNameBuilder("--" + longName(i), description);
+            flags[i] = i % 2 == 0 ? builder.build() : builder.requireValue().build();
+        }
+        return flags;
+    }
+
+    static String longName(int ordinal) {
+        return String.format("flag_%05d", ordinal);
+    }
+}
@@ -0,0 +1,47 @@
+package org.example.argumentparser.benchmark;
+
+import org.example.argumentparser.ArgumentParser;
+import org.example.argumentparser.ArgumentParserBuilder;
+import org.example.argumentparser.PositionalArgument;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+@BenchmarkMode({Mode.Throughput, Mode.AverageTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class UsageBenchmark {
+
+    @Param({"10", "1000", "10000"})
+    private int flagCount;
+
+    private ArgumentParser parser;
+    private StringBuilder out;
+
+    @Setup
+    public void setUp() {
+        parser = ArgumentParserBuilder.newBuilder("bench")
+                .setProgramDescription("Usage benchmark.")
+                .addFlags(Schemas.flags(flagCount))
+                .addPositionalArguments(new PositionalArgument("src", "source file location"),
+                        new PositionalArgument("destination", "destination file location"))
+                .build();
+        out = new StringBuilder(parser.usage().length() * 2);
+    }
+
+    @Benchmark
+    public String usage() {
+        return parser.usage();
+    }
+
+    @Benchmark
+    public StringBuilder printWrappedUsage() throws IOException {
+        out.setLength(0);
+        parser.printUsage(out, 100);
+        return out;
+    }
+}
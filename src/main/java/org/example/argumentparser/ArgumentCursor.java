@@ -0,0 +1,47 @@
+package org.example.argumentparser;
+
+// Walks the tokens of one command line. token() is only valid until the next advance(), so anything that has
+// to outlive the current step is taken through tokenString().
+interface ArgumentCursor extends AutoCloseable {
+
+    boolean advance();
+
+    CharSequence token();
+
+    default String tokenString() {
+        return token().toString();
+    }
+
+    // The number of tokens in the whole command line, whatever has been read of it.
+    int count();
+
+    @Override
+    default void close() {
+    }
+
+    static ArgumentCursor of(String[] args) {
+        return new ArgumentCursor() {
+            private int index = -1;
+
+            @Override
+            public boolean advance() {
+                return ++index < args.length;
+            }
+
+            @Override
+            public String token() {
+                return args[index];
+            }
+
+            @Override
+            public String tokenString() {
+                return args[index];
+            }
+
+            @Override
+            public int count() {
+                return args.length;
+            }
+        };
+    }
+}
@@ -0,0 +1,9 @@
+package org.example.argumentparser;
+
+// How the arguments of a command line given as bytes are delimited; see ArgumentParser.parse(ByteBuffer, ...).
+public enum ArgumentFraming {
+    // Each argument is followed by a NUL byte, as in /proc/<pid>/cmdline. The last NUL may be left out.
+    NUL_TERMINATED,
+    // Each argument is preceded by its length in bytes as a big-endian int, as in the daemon protocol.
+    LENGTH_PREFIXED
+}
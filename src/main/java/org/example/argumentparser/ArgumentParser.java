@@ -1,241 +1,889 @@
 package org.example.argumentparser;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
 import java.util.*;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
-
-import static java.util.Comparator.comparingInt;
-import static java.util.stream.Collectors.joining;
-import static java.util.stream.Collectors.toList;
+import java.util.function.BooleanSupplier;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.stream.Stream;
 
 public class ArgumentParser {
 
-    private static final Pattern SHORT_FLAG_PATTERN = Pattern.compile("^-(?<argName>[a-zA-Z0-9])$");
-    private static final Pattern LONG_FLAG_PATTERN = Pattern.compile("^--(?<argName>[a-zA-Z0-9_]{2,})$");
+    static final int NOT_A_FLAG = -1;
+    static final int UNKNOWN_FLAG = -2;
 
-    private static final String INDENTATION = "    ";
     private final String programName;
     private final Optional<String> programDescription;
     private final List<PositionalArgument> positionalArguments;
-
-    private final HashMap<String, Flag> shortNameMap = new HashMap<>();
-    private final HashMap<String, Flag> longNameMap = new HashMap<>();
-
+    private final Optional<VariadicPositionalArgument> variadicPositionalArgument;
+    private final Map<String, Subcommand> subcommands;
+
+    // Parse-time view of the flags, indexed by ordinal so that the scanner never has to allocate.
+    private final Flag[] flags;
+    private final boolean[] takesValue;
+    private final boolean[] repeatable;
+    private final boolean hasRepeatableFlags;
+    private final int[] primitiveSlots;
+    private final long[] requiredFlags;
+    private final int primitiveFlagCount;
+    private final FlagNameIndex nameIndex;
+    private final IdentityHashMap<Flag, Integer> flagOrdinals = new IdentityHashMap<>();
+    private final IdentityHashMap<PositionalArgument, Integer> positionalIndices = new IdentityHashMap<>();
+    private final boolean expandResponseFiles;
+    private final Optional<ConcurrentConversion> concurrentConversion;
+    private final FlagConstraints constraints;
+    private final ParseListener listener;
+    private final ValueSources valueSources;
+    private final ValueCompleter[] valueCompleters;
+    private final boolean shellCompletion;
+    // Laid out on first use, so that parses and shell completion never pay for the help text.
+    private volatile UsageLayout usageLayout;
+    private volatile CompletionIndex completionIndex;
+    private volatile NameSuggestions nameSuggestions;
+    private final IdentityHashMap<Flag, ConverterCache> converterCaches;
 
     public ArgumentParser(String programName, Optional<String> programDescription, Set<Flag> flags,
                           List<PositionalArgument> positionalArguments) {
+        this(programName, programDescription, flags, positionalArguments, Optional.empty(), false, Optional.empty(),
+                List.of(), ParseListener.NONE, List.of(), Map.of(), Optional.empty(), System::getenv, Map.of(), false,
+                Map.of());
+    }
+
+    ArgumentParser(String programName, Optional<String> programDescription, Set<Flag> flags,
+                   List<PositionalArgument> positionalArguments,
+                   Optional<VariadicPositionalArgument> variadicPositionalArgument, boolean expandResponseFiles,
+                   Optional<Duration> conversionDeadline, List<FlagConstraints.Rule> constraints,
+                   ParseListener listener, List<Subcommand> subcommands, Map<Flag, String> environmentVariables,
+                   Optional<Path> configFile, Function<String, String> environment,
+                   Map<Flag, ValueCompleter> valueCompleters, boolean shellCompletion,
+                   Map<Flag, ConverterCache> converterCaches) {
+        this.expandResponseFiles = expandResponseFiles;
+        this.listener = listener;
+        this.concurrentConversion = conversionDeadline.map(ConcurrentConversion::new);
         this.programName = programName;
         this.programDescription = programDescription;
-        this.positionalArguments = positionalArguments;
+        this.positionalArguments = List.copyOf(positionalArguments);
+        this.variadicPositionalArgument = variadicPositionalArgument;
+        this.subcommands = new LinkedHashMap<>();
+        for (Subcommand subcommand : subcommands) {
+            this.subcommands.put(subcommand.getName(), subcommand);
+        }
 
-        for (Flag flag : flags) {
-            shortNameMap.put(flag.getShortName(), flag);
-            if (flag.getLongName().isPresent()) {
-                longNameMap.put(flag.getLongName().get(), flag);
+        this.flags = flags.toArray(new Flag[0]);
+        this.takesValue = new boolean[this.flags.length];
+        this.repeatable = new boolean[this.flags.length];
+        boolean hasRepeatableFlags = false;
+        this.primitiveSlots = new int[this.flags.length];
+        this.requiredFlags = new long[(this.flags.length + 63) >>> 6];
+        int primitiveFlagCount = 0;
+        for (int ordinal = 0; ordinal < this.flags.length; ordinal++) {
+            flagOrdinals.put(this.flags[ordinal], ordinal);
+            takesValue[ordinal] = requiresValue(this.flags[ordinal]);
+            repeatable[ordinal] = this.flags[ordinal] instanceof Flag.RepeatableFlag;
+            hasRepeatableFlags |= repeatable[ordinal];
+            primitiveSlots[ordinal] = this.flags[ordinal] instanceof Flag.PrimitiveFlag ? primitiveFlagCount++ : -1;
+            if (isRequired(this.flags[ordinal])) {
+                requiredFlags[ordinal >>> 6] |= 1L << ordinal;
             }
         }
+        this.primitiveFlagCount = primitiveFlagCount;
+        this.hasRepeatableFlags = hasRepeatableFlags;
+        this.constraints = new FlagConstraints(constraints, this::ordinalOf);
+        this.nameIndex = new FlagNameIndex(this.flags);
+        this.valueCompleters = new ValueCompleter[this.flags.length];
+        for (var completer : valueCompleters.entrySet()) {
+            this.valueCompleters[ordinalOf(completer.getKey())] = completer.getValue();
+        }
+        this.shellCompletion = shellCompletion;
+        this.converterCaches = new IdentityHashMap<>(converterCaches);
+        this.valueSources = new ValueSources(this.flags, takesValue, nameIndex, this::ordinalOf, environmentVariables,
+                configFile, environment);
+
+        for (int i = 0; i < positionalArguments.size(); i++) {
+            positionalIndices.put(positionalArguments.get(i), i);
+        }
     }
 
-    public void parse(String[] args) {
-        boolean printUsage = Arrays.stream(args)
-                .anyMatch(arg -> arg.equals("-h") || arg.equals("--help"));
-        if (printUsage) {
-            System.out.println(usage());
-            System.exit(0);
+    public ParseResult parse(String[] args) {
+        if (shellCompletion && args.length > 0 && args[0].equals(CompletionScripts.COMPLETE_COMMAND)) {
+            printCompletionsAndExit(Arrays.copyOfRange(args, 1, args.length));
+        }
+        var result = parseWithoutExit(args);
+        if (result.isHelpRequested()) {
+            result.getParser().printHelpAndExit();
         }
+        return result;
+    }
 
-        var currentPosArgIdx = 0;
+    // Parses every command line with this parser on all cores, handing each outcome to results on the calling
+    // thread. With keepOrder the outcomes come in input order, otherwise as soon as they are ready.
+    public void parseAll(Stream<String[]> commandLines, boolean keepOrder, Consumer<BatchResult> results) {
+        var batch = new BatchParser(this, Runtime.getRuntime().availableProcessors());
+        batch.parseAll(commandLines.iterator(), Function.identity(), keepOrder, results);
+    }
 
-        for (int i = 0; i < args.length; i++) {
+    // Each line of the UTF-8 file is one command line, split with the quoting rules of response files.
+    public void parseAll(Path lineFile, boolean keepOrder, Consumer<BatchResult> results) throws IOException {
+        var batch = new BatchParser(this, Runtime.getRuntime().availableProcessors());
+        try (var lines = Files.lines(lineFile, StandardCharsets.UTF_8)) {
+            batch.parseAll(lines.iterator(), LineTokenizer::split, keepOrder, results);
+        }
+    }
 
-            var arg  = args[i];
+    // Starts incremental parsing of a line being edited; see ParseSession.
+    public ParseSession newSession() {
+        if (!subcommands.isEmpty() || variadicPositionalArgument.isPresent() || expandResponseFiles) {
+            throw new IllegalStateException("Parsers with subcommands, a Variadic Positional Argument or response "
+                    + "files cannot be parsed incrementally.");
+        }
+        return new ParseSession(this);
+    }
 
-            Matcher shortNameMatcher = SHORT_FLAG_PATTERN.matcher(arg);
-            Matcher longNameMatcher = LONG_FLAG_PATTERN.matcher(arg);
-            if (shortNameMatcher.matches()){
-                var shortName = shortNameMatcher.group("argName");
-                if (!shortNameMap.containsKey(shortName)) {
-                    throw new IllegalArgumentException("Invalid short name encountered: " + shortName);
-                }
-                var flag = shortNameMap.get(shortName);
-                Optional<String> nextArg = (i+1) == args.length ? Optional.empty() : Optional.of(args[i+1]);
-                if (parseFlag(shortName, flag, nextArg)) {
-                    i++;
+    // Parses a command line given as bytes, e.g. read from /proc/<pid>/cmdline or a socket, from the buffer's
+    // position to its limit. Flag names are matched against the bytes; only values and positional arguments
+    // are decoded, as UTF-8. The buffer, heap or direct, must not change until the result has been read.
+    public ParseResult parse(ByteBuffer args, ArgumentFraming framing) {
+        var result = parseWithoutExit(new ByteArgumentCursor(args, framing));
+        if (result.isHelpRequested()) {
+            result.getParser().printHelpAndExit();
+        }
+        return result;
+    }
+
+    // Like parse, but rather than printing the usage and exiting when help is asked for, returns a result
+    // that says so.
+    ParseResult parseWithoutExit(String[] args) {
+        return parseWithoutExit(ArgumentCursor.of(args));
+    }
+
+    // Also parses the rest of the command line for a subcommand, so that its listener, events and response files
+    // apply as they would to a parser of its own.
+    private ParseResult parseWithoutExit(ArgumentCursor arguments) {
+        var event = new ParseEvents.Parse();
+        if (!event.isEnabled() && listener == ParseListener.NONE) {
+            return parseUnobserved(arguments);
+        }
+        long start = System.nanoTime();
+        event.begin();
+        boolean succeeded = false;
+        try {
+            var result = parseUnobserved(arguments);
+            succeeded = true;
+            return result;
+        } finally {
+            event.end();
+            int tokenCount = arguments.count();
+            if (event.shouldCommit()) {
+                event.programName = programName;
+                event.tokenCount = tokenCount;
+                event.succeeded = succeeded;
+                event.commit();
+            }
+            listener.parsed(tokenCount, System.nanoTime() - start, succeeded);
+        }
+    }
+
+    private ParseResult parseUnobserved(ArgumentCursor arguments) {
+        // Tokens that a parent parser already expanded are not expanded again.
+        var cursor = expandResponseFiles && !(arguments instanceof ResponseFileCursor)
+                ? new ResponseFileCursor(arguments) : arguments;
+        try {
+            var result = parse(cursor);
+            if (result.isHelpRequested()) {
+                cursor.close();
+            }
+            return result;
+        } catch (RuntimeException e) {
+            cursor.close();
+            throw e;
+        }
+    }
+
+    // Closes arguments once they are read, unless the rest of them is handed to a variadic positional argument.
+    // After a subcommand name, the rest of the arguments are parsed by the subcommand's parser.
+    private ParseResult parse(ArgumentCursor arguments) {
+        var rawValues = new String[flags.length];
+        var appeared = new long[(flags.length + 63) >>> 6];
+        var positionalValues = new String[positionalArguments.size()];
+        var positionalCount = 0;
+
+        // A help token anywhere wins over any other problem, so the first failure is only thrown
+        // once the whole command line has been scanned.
+        RuntimeException failure = null;
+        int pendingValueOrdinal = NOT_A_FLAG;
+        boolean pendingValueUsedShortName = false;
+        VariadicValues variadicValues = null;
+        Subcommand subcommand = null;
+        ParseResult subcommandResult = null;
+        RepeatedValues[] repeatedValues = null;
+
+        while (arguments.advance()) {
+            var arg = arguments.token();
+            if (isHelp(arg)) {
+                return ParseResult.helpRequested(this);
+            }
+            if (failure != null) {
+                continue;
+            }
+            if (pendingValueOrdinal != NOT_A_FLAG) {
+                if (repeatable[pendingValueOrdinal]) {
+                    repeatedValues = append(repeatedValues, pendingValueOrdinal, arguments.tokenString());
+                } else {
+                    rawValues[pendingValueOrdinal] = arguments.tokenString();
                 }
-            } else if (longNameMatcher.matches()) {
-                var longName = longNameMatcher.group("argName");
-                if (!longNameMap.containsKey(longName)) {
-                    throw new IllegalArgumentException("Invalid short name encountered: " + longName);
+                pendingValueOrdinal = NOT_A_FLAG;
+                continue;
+            }
+
+            int ordinal = resolveFlag(arg);
+            if (ordinal == NOT_A_FLAG && hasRepeatableFlags) {
+                int separator = inlineValueSeparator(arg);
+                if (separator >= 0) {
+                    ordinal = resolveFlag(arg.subSequence(0, separator));
+                    appeared[ordinal >>> 6] |= 1L << ordinal;
+                    repeatedValues = append(repeatedValues, ordinal, arg.subSequence(separator + 1, arg.length())
+                            .toString());
+                    continue;
                 }
-                var flag = longNameMap.get(longName);
-                Optional<String> nextArg = (i+1) == args.length ? Optional.empty() : Optional.of(args[i+1]);
-                if (parseFlag(longName, flag, nextArg)) {
-                    i++;
+            }
+            if (ordinal == NOT_A_FLAG) {
+                if (positionalCount == positionalValues.length && !subcommands.isEmpty()) {
+                    subcommand = subcommands.get(arguments.tokenString());
+                    if (subcommand == null) {
+                        failure = new IllegalArgumentException("Unknown subcommand: " + arg);
+                        continue;
+                    }
+                    subcommandResult = subcommand.getParser().parseWithoutExit(arguments);
+                    if (subcommandResult.isHelpRequested()) {
+                        return subcommandResult;
+                    }
+                    break;
+                } else if (positionalCount == positionalValues.length && variadicPositionalArgument.isPresent()) {
+                    variadicValues = new VariadicValues(arguments);
+                    break;
+                } else if (positionalCount == positionalValues.length) {
+                    failure = unrecognizedPositional(arg);
+                } else {
+                    positionalValues[positionalCount++] = arguments.tokenString();
                 }
+            } else if (ordinal == UNKNOWN_FLAG) {
+                failure = unknownFlag(arg);
             } else {
-                if (currentPosArgIdx == positionalArguments.size()) {
-                    throw new IllegalArgumentException("Unrecognized positional argument with value: " + arg);
+                appeared[ordinal >>> 6] |= 1L << ordinal;
+                if (takesValue[ordinal]) {
+                    pendingValueOrdinal = ordinal;
+                    pendingValueUsedShortName = arg.length() == 2;
                 }
-                var posArg = positionalArguments.get(currentPosArgIdx++);
-                posArg.setValue(arg);
             }
         }
 
-        // validate pos args
-        if (currentPosArgIdx != (positionalArguments.size())) {
-            throw new IllegalStateException("Missing positional argument: "
-                    + positionalArguments.get(currentPosArgIdx).getName());
+        if (failure == null && pendingValueOrdinal != NOT_A_FLAG) {
+            failure = missingValue(pendingValueOrdinal, pendingValueUsedShortName);
         }
+        if (failure != null) {
+            throw failure;
+        }
+        if (variadicValues == null && subcommand == null) {
+            arguments.close();
+        }
+        return finish(rawValues, appeared, positionalValues, positionalCount, repeatedValues, null, variadicValues,
+                subcommand, subcommandResult);
+    }
 
-        // validate required flags
-        var firstMissingRequiredFlag = getAllFlags().stream()
-                .filter(flag -> isRequired(flag) && !flag.hasAppeared())
-                .findFirst();
+    // Everything after the scan: values from the environment and the config file, conversion and validation.
+    // A memo, kept by a ParseSession across parses, skips the converters whose raw value has not changed.
+    ParseResult finish(String[] rawValues, long[] appeared, String[] positionalValues, int positionalCount,
+                       RepeatedValues[] repeatedValues, ParseSession.ConversionMemo memo,
+                       VariadicValues variadicValues, Subcommand subcommand, ParseResult subcommandResult) {
+        if (!valueSources.isEmpty()) {
+            valueSources.fill(rawValues, appeared);
+        }
 
-        if (firstMissingRequiredFlag.isPresent()) {
-            var flag = firstMissingRequiredFlag.get();
-            var flagName = flag.getLongName().orElse(flag.getShortName());
-            throw new IllegalStateException("Missing required flag: " + flagName);
+        var values = new Object[flags.length];
+        var primitiveValues = new long[primitiveFlagCount];
+        int[] concurrentOrdinals = null;
+        int concurrentCount = 0;
+        for (int ordinal = 0; ordinal < flags.length; ordinal++) {
+            var flag = flags[ordinal];
+            var rawValue = rawValues[ordinal];
+            if (primitiveSlots[ordinal] >= 0) {
+                var primitiveFlag = (Flag.PrimitiveFlag<?>) flag;
+                long bits;
+                if (rawValue == null) {
+                    bits = primitiveFlag.defaultBits();
+                } else if (memo != null && memo.holds(ordinal, rawValue)) {
+                    bits = memo.bits(ordinal);
+                } else {
+                    bits = convertBits(primitiveFlag, rawValue);
+                    if (memo != null) {
+                        memo.putBits(ordinal, rawValue, bits);
+                    }
+                }
+                primitiveValues[primitiveSlots[ordinal]] = bits;
+            } else if (repeatable[ordinal]) {
+                var repeated = repeatedValues != null ? repeatedValues[ordinal] : null;
+                if (repeated == null && rawValue != null) {
+                    // From an environment variable or the config file, which hold a single occurrence.
+                    repeated = newRepeatedValues(ordinal);
+                    repeated.append(rawValue);
+                }
+                if (repeated != null && !repeated.isConverted()) {
+                    repeated.convert(repeatedValue -> convert(flag, repeatedValue));
+                }
+                values[ordinal] = repeated != null ? repeated : List.of();
+            } else if (rawValue != null) {
+                if (memo != null && memo.holds(ordinal, rawValue)) {
+                    values[ordinal] = memo.value(ordinal);
+                } else if (flag.convertsLazily()) {
+                    values[ordinal] = new LazyValue(this, flag, rawValue);
+                } else if (concurrentConversion.isPresent()) {
+                    if (concurrentOrdinals == null) {
+                        concurrentOrdinals = new int[flags.length];
+                    }
+                    concurrentOrdinals[concurrentCount++] = ordinal;
+                    continue;
+                } else {
+                    values[ordinal] = convert(flag, rawValue);
+                }
+                if (memo != null) {
+                    memo.put(ordinal, rawValue, values[ordinal]);
+                }
+            } else if (hasDefaultValue(flag)) {
+                values[ordinal] = ((HasDefaultValue<?>) flag).getDefaultValue();
+            }
+        }
+        if (concurrentCount == 1) {
+            values[concurrentOrdinals[0]] = convert(flags[concurrentOrdinals[0]], rawValues[concurrentOrdinals[0]]);
+        } else if (concurrentCount > 1) {
+            concurrentConversion.get().convert(this, flags, rawValues, concurrentOrdinals, concurrentCount, values);
         }
+        if (memo != null) {
+            for (int i = 0; i < concurrentCount; i++) {
+                memo.put(concurrentOrdinals[i], rawValues[concurrentOrdinals[i]], values[concurrentOrdinals[i]]);
+            }
+        }
+
+        validate(positionalCount, appeared);
+        return new ParseResult(this, values, primitiveValues, appeared, positionalValues, variadicValues,
+                subcommand != null ? Optional.of(subcommand.getName()) : Optional.empty(), subcommandResult);
+    }
+
+    private RepeatedValues[] append(RepeatedValues[] repeatedValues, int ordinal, String value) {
+        if (repeatedValues == null) {
+            repeatedValues = new RepeatedValues[flags.length];
+        }
+        if (repeatedValues[ordinal] == null) {
+            repeatedValues[ordinal] = newRepeatedValues(ordinal);
+        }
+        repeatedValues[ordinal].append(value);
+        return repeatedValues;
+    }
+
+    // The failures of the scan, shared with ParseSession.
+    IllegalArgumentException unknownFlag(CharSequence arg) {
+        return nameSuggestions().unknownFlag(arg);
+    }
+
+    static IllegalArgumentException unrecognizedPositional(CharSequence arg) {
+        return new IllegalArgumentException("Unrecognized positional argument with value: " + arg);
+    }
+
+    IllegalArgumentException missingValue(int ordinal, boolean usedShortName) {
+        var flag = flags[ordinal];
+        var inputName = usedShortName ? flag.getOptionalShortName().get() : flag.getLongName().get();
+        return new IllegalArgumentException("No flag value found for flag: " + inputName);
+    }
+
+    boolean takesValue(int ordinal) {
+        return takesValue[ordinal];
+    }
+
+    boolean isRepeatable(int ordinal) {
+        return repeatable[ordinal];
+    }
+
+    boolean hasRepeatableFlags() {
+        return hasRepeatableFlags;
+    }
+
+    RepeatedValues newRepeatedValues(int ordinal) {
+        var separator = ((Flag.RepeatableFlag<?>) flags[ordinal]).getSeparator();
+        return new RepeatedValues(separator.isPresent() ? separator.get() : RepeatedValues.NO_SEPARATOR);
+    }
 
-        for (Flag flag : getAllFlags()) {
-            flag.markParsed();
+    // Repeatable flags also take their value as "--name=value"; returns the index of the '=' if arg is one of
+    // those, or -1.
+    int inlineValueSeparator(CharSequence arg) {
+        if (arg.length() < 4 || arg.charAt(0) != '-' || arg.charAt(1) != '-') {
+            return -1;
         }
-        for (PositionalArgument positionalArgument : positionalArguments) {
-            positionalArgument.markParsed();
+        int separator = 2;
+        while (separator < arg.length() && arg.charAt(separator) != '=') {
+            separator++;
         }
+        if (separator == arg.length()) {
+            return -1;
+        }
+        int ordinal = resolveFlag(arg.subSequence(0, separator));
+        return ordinal >= 0 && repeatable[ordinal] ? separator : -1;
     }
 
-    private boolean parseFlag(String inputName, Flag flag, Optional<String> nextArg) {
-        flag.markAppeared();
-        if ((requiresValue(flag))) {
-            if (nextArg.isEmpty()) {
-                throw new IllegalArgumentException("No flag value found for flag: " + inputName);
+    private void validate(int positionalCount, long[] appeared) {
+        var event = new ParseEvents.Validation();
+        if (!event.isEnabled() && listener == ParseListener.NONE) {
+            validateUnobserved(positionalCount, appeared);
+            return;
+        }
+        long start = System.nanoTime();
+        event.begin();
+        boolean succeeded = false;
+        try {
+            validateUnobserved(positionalCount, appeared);
+            succeeded = true;
+        } finally {
+            event.end();
+            if (event.shouldCommit()) {
+                event.programName = programName;
+                event.succeeded = succeeded;
+                event.commit();
             }
-            var flagValue = nextArg.get();
-            if (flag instanceof Flag.RequiredFlagWithValue) {
-                ((Flag.RequiredFlagWithValue<?>) flag).setRawValue(flagValue);
-            } else if (flag instanceof Flag.OptionalFlagWithValue) {
-                ((Flag.OptionalFlagWithValue<?>) flag).setRawValue(flagValue);
-            } else if (flag instanceof Flag.OptionalFlagWithDefaultValue) {
-                ((Flag.OptionalFlagWithDefaultValue<?>) flag).setRawValue(flagValue);
-            } else {
-                throw new IllegalStateException("Internal Error: Unrecognized flag class "
-                        + flag.getClass().getSimpleName());
+            listener.validated(System.nanoTime() - start, succeeded);
+        }
+    }
+
+    // Every missing positional argument and required flag and every broken rule is found in the same pass, and
+    // reported together, one per line.
+    private void validateUnobserved(int positionalCount, long[] appeared) {
+        List<String> violations = null;
+        if (positionalCount != positionalArguments.size()) {
+            var names = new StringJoiner(", ");
+            for (int i = positionalCount; i < positionalArguments.size(); i++) {
+                names.add(positionalArguments.get(i).getName());
             }
-            return true;
-        } else { // does not require value
-            if (flag instanceof Flag.OptionalFlagWithoutValue) {
-                flag.markAppeared();
-            } else {
-                throw new IllegalStateException("Internal Error: Unrecognized flag class "
-                        + flag.getClass().getSimpleName());
+            violations = new ArrayList<>();
+            violations.add(missing("positional argument", positionalArguments.size() - positionalCount, names));
+        }
+
+        StringJoiner missingNames = null;
+        int missingCount = 0;
+        for (int word = 0; word < requiredFlags.length; word++) {
+            for (long missing = requiredFlags[word] & ~appeared[word]; missing != 0; missing &= missing - 1) {
+                if (missingNames == null) {
+                    missingNames = new StringJoiner(", ");
+                }
+                missingNames.add(flags[(word << 6) + Long.numberOfTrailingZeros(missing)].getName());
+                missingCount++;
             }
-            return false;
+        }
+        if (missingNames != null) {
+            if (violations == null) {
+                violations = new ArrayList<>();
+            }
+            violations.add(missing("required flag", missingCount, missingNames));
+        }
+
+        if (!constraints.isEmpty()) {
+            violations = constraints.collectViolations(appeared, violations);
+        }
+        if (violations != null) {
+            throw new IllegalStateException(String.join("\n", violations));
         }
     }
 
-    public String usage() {
-        StringBuilder builder = new StringBuilder("USAGE: ");
-        builder.append(programName).append(' ');
+    static String missing(String what, int count, StringJoiner names) {
+        return "Missing " + what + (count == 1 ? ": " : "s: ") + names;
+    }
 
-        List<Flag> optionalFlags = getAllFlags().stream()
-                .filter(flag -> !(isRequired(flag)))
-                .collect(toList());
-        String optionalFlagsDesc = optionalFlags.stream()
-                .map(flag -> '-' + flag.getShortName())
-                .collect(joining(" "));
-        if (!optionalFlagsDesc.isEmpty()) {
-            builder.append('[').append(optionalFlagsDesc).append(']').append(' ');
+    // Runs the converter of a flag, reporting it to the listener and Flight Recorder when either observes it.
+    Object convert(Flag flag, String rawValue) {
+        var event = new ParseEvents.Conversion();
+        if (!event.isEnabled() && listener == ParseListener.NONE) {
+            return convertCached(flag, rawValue);
         }
+        long start = System.nanoTime();
+        event.begin();
+        boolean succeeded = false;
+        try {
+            var value = convertCached(flag, rawValue);
+            succeeded = true;
+            return value;
+        } finally {
+            conversionFinished(event, start, flag, succeeded);
+        }
+    }
+
+    private Object convertCached(Flag flag, String rawValue) {
+        var cache = converterCaches.isEmpty() ? null : converterCaches.get(flag);
+        return cache != null ? cache.get(rawValue, flag::convert) : flag.convert(rawValue);
+    }
 
-        List<Flag> requiredFlags = getAllFlags().stream()
-                .filter(ArgumentParser::isRequired)
-                .collect(toList());
-        String requiredFlagsDesc = requiredFlags.stream()
-                .map(flag -> '-' + flag.getShortName())
-                .collect(joining(" "));
-        if (!requiredFlagsDesc.isEmpty()) {
-            builder.append(requiredFlagsDesc).append(' ');
+    private long convertBits(Flag.PrimitiveFlag<?> flag, String rawValue) {
+        var event = new ParseEvents.Conversion();
+        if (!event.isEnabled() && listener == ParseListener.NONE) {
+            return flag.convertBits(rawValue);
+        }
+        long start = System.nanoTime();
+        event.begin();
+        boolean succeeded = false;
+        try {
+            var bits = flag.convertBits(rawValue);
+            succeeded = true;
+            return bits;
+        } finally {
+            conversionFinished(event, start, flag, succeeded);
         }
+    }
 
-        for (PositionalArgument positionalArgument : positionalArguments) {
-            builder.append(positionalArgument.getName()).append(' ');
+    private void conversionFinished(ParseEvents.Conversion event, long start, Flag flag, boolean succeeded) {
+        event.end();
+        if (event.shouldCommit()) {
+            event.flagName = flag.getName();
+            event.succeeded = succeeded;
+            event.commit();
         }
+        listener.converted(flag, System.nanoTime() - start, succeeded);
+    }
 
-        if (programDescription.isPresent()) {
-            builder.append('\n');
-            builder.append(programDescription.get());
+    int ordinalOf(Flag flag) {
+        var ordinal = flagOrdinals.get(flag);
+        if (ordinal == null) {
+            throw new IllegalArgumentException("Flag is not registered with this parser: " + flag.getName());
         }
+        return ordinal;
+    }
 
-        builder.append('\n').append('\n');
+    int primitiveSlotOf(Flag.PrimitiveFlag<?> flag) {
+        return primitiveSlots[ordinalOf(flag)];
+    }
 
-        Optional<Integer> maxLength = positionalArguments.stream()
-                .map(positionalArgument -> positionalArgument.getName().length())
-                .max(comparingInt(len -> len));
-        if (maxLength.isPresent()) {
-            builder.append("POSITIONAL ARGUMENTS\n");
-            for (PositionalArgument positionalArgument : positionalArguments) {
-                builder.append(INDENTATION).append(positionalArgument.getName());
-                builder.append(" ".repeat(Math.max(0, maxLength.get() - positionalArgument.getName().length())));
-                builder.append(" : ").append(positionalArgument.getDescription());
-                builder.append('\n');
+    // The schema a snapshot is written from.
+    String getProgramName() {
+        return programName;
+    }
+
+    Optional<String> getProgramDescription() {
+        return programDescription;
+    }
+
+    Flag[] getFlags() {
+        return flags;
+    }
+
+    List<PositionalArgument> getPositionalArguments() {
+        return positionalArguments;
+    }
+
+    Optional<VariadicPositionalArgument> getVariadicPositionalArgument() {
+        return variadicPositionalArgument;
+    }
+
+    boolean expandsResponseFiles() {
+        return expandResponseFiles;
+    }
+
+    boolean hasShellCompletion() {
+        return shellCompletion;
+    }
+
+    // Whatever a snapshot cannot hold, as it is code or depends on the environment rather than being schema.
+    Optional<String> snapshotLimitation() {
+        if (!subcommands.isEmpty()) {
+            return Optional.of("subcommands");
+        }
+        if (!constraints.isEmpty()) {
+            return Optional.of("flag constraints");
+        }
+        if (!valueSources.isEmpty()) {
+            return Optional.of("environment variables and config files");
+        }
+        if (concurrentConversion.isPresent()) {
+            return Optional.of("concurrent conversion");
+        }
+        if (listener != ParseListener.NONE) {
+            return Optional.of("parse listeners");
+        }
+        if (!converterCaches.isEmpty()) {
+            return Optional.of("converter caches");
+        }
+        for (ValueCompleter completer : valueCompleters) {
+            if (completer != null) {
+                return Optional.of("value completers");
+            }
+        }
+        return Optional.empty();
+    }
+
+    // Whatever depends on the working directory, environment or standard input of the process, which in a
+    // ParseDaemon would be the daemon's rather than the client's.
+    Optional<String> daemonLimitation() {
+        if (expandResponseFiles) {
+            return Optional.of("response files");
+        }
+        if (valueSources.readsEnvironment()) {
+            return Optional.of("environment variables");
+        }
+        if (valueSources.hasRelativeConfigFile()) {
+            return Optional.of("a config file with a relative path");
+        }
+        if (variadicPositionalArgument.isPresent()) {
+            return Optional.of("a Variadic Positional Argument, which reads standard input for \"-\"");
+        }
+        for (Subcommand subcommand : subcommands.values()) {
+            var limitation = subcommand.getParser().daemonLimitation();
+            if (limitation.isPresent()) {
+                return limitation;
+            }
+        }
+        return Optional.empty();
+    }
+
+    void checkRegistered(VariadicPositionalArgument variadicPositionalArgument) {
+        if (this.variadicPositionalArgument.orElse(null) != variadicPositionalArgument) {
+            throw new IllegalArgumentException("Variadic Positional Argument is not registered with this parser: "
+                    + variadicPositionalArgument.getName());
+        }
+    }
+
+    int indexOf(PositionalArgument positionalArgument) {
+        var index = positionalIndices.get(positionalArgument);
+        if (index == null) {
+            throw new IllegalArgumentException("Positional Argument is not registered with this parser: "
+                    + positionalArgument.getName());
+        }
+        return index;
+    }
+
+    // Returns the ordinal of the flag named by "-x" or "--long_name", UNKNOWN_FLAG for a well-formed but
+    // unregistered name, or NOT_A_FLAG for anything else (which is then a positional argument).
+    int resolveFlag(CharSequence arg) {
+        if (!isFlagName(arg)) {
+            return NOT_A_FLAG;
+        }
+        int ordinal = arg.length() == 2 ? nameIndex.lookupShortName(arg.charAt(1)) : nameIndex.lookupLongName(arg, 2);
+        return ordinal == FlagNameIndex.NOT_FOUND ? UNKNOWN_FLAG : ordinal;
+    }
+
+    static boolean isFlagName(CharSequence arg) {
+        int length = arg.length();
+        if (length < 2 || arg.charAt(0) != '-') {
+            return false;
+        }
+        if (length == 2) {
+            return isNameChar(arg.charAt(1));
+        }
+        if (length < 4 || arg.charAt(1) != '-') {
+            return false;
+        }
+        for (int i = 2; i < length; i++) {
+            char c = arg.charAt(i);
+            if (!isNameChar(c) && c != '_') {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean isNameChar(char c) {
+        return (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z') || (c >= '0' && c <= '9');
+    }
+
+    static boolean isHelp(CharSequence arg) {
+        int length = arg.length();
+        if (length == 2) {
+            return arg.charAt(0) == '-' && arg.charAt(1) == 'h';
+        }
+        return length == 6 && arg.charAt(0) == '-' && arg.charAt(1) == '-' && arg.charAt(2) == 'h'
+                && arg.charAt(3) == 'e' && arg.charAt(4) == 'l' && arg.charAt(5) == 'p';
+    }
+
+    static String flagName(CharSequence arg) {
+        return arg.subSequence(arg.charAt(1) == '-' ? 2 : 1, arg.length()).toString();
+    }
+
+    // The parser of the subcommand that args select, or this parser, following the tokens as parse does up to
+    // the first problem. Used to show the usage of the parser that failed.
+    ArgumentParser selectedParser(String[] args) {
+        int positionalCount = 0;
+        boolean pendingValue = false;
+        for (int i = 0; i < args.length; i++) {
+            var arg = args[i];
+            if (pendingValue) {
+                pendingValue = false;
+                continue;
+            }
+            int ordinal = resolveFlag(arg);
+            if (ordinal == NOT_A_FLAG && hasRepeatableFlags && inlineValueSeparator(arg) >= 0) {
+                continue;
+            }
+            if (ordinal >= 0) {
+                pendingValue = takesValue[ordinal];
+            } else if (ordinal == UNKNOWN_FLAG) {
+                return this;
+            } else if (positionalCount < positionalArguments.size()) {
+                positionalCount++;
+            } else {
+                var subcommand = subcommands.get(arg);
+                return subcommand == null ? this
+                        : subcommand.getParser().selectedParser(Arrays.copyOfRange(args, i + 1, args.length));
+            }
+        }
+        return this;
+    }
+
+    // Returns the candidates for the last of words, the command line typed so far without the program name.
+    // Completion follows the flags and subcommands but runs no converter, checks nothing and lays out no usage.
+    public List<String> complete(String... words) {
+        int last = words.length - 1;
+        var prefix = last >= 0 ? words[last] : "";
+        int positionalCount = 0;
+        int pendingValueOrdinal = NOT_A_FLAG;
+        for (int i = 0; i < last; i++) {
+            var word = words[i];
+            if (pendingValueOrdinal != NOT_A_FLAG) {
+                pendingValueOrdinal = NOT_A_FLAG;
+                continue;
+            }
+            int ordinal = resolveFlag(word);
+            if (ordinal == NOT_A_FLAG && hasRepeatableFlags && inlineValueSeparator(word) >= 0) {
+                // "--name=value" carries its own value.
+                continue;
             }
-            builder.append('\n');
+            if (ordinal >= 0) {
+                pendingValueOrdinal = takesValue[ordinal] ? ordinal : NOT_A_FLAG;
+            } else if (ordinal == NOT_A_FLAG) {
+                if (positionalCount < positionalArguments.size()) {
+                    positionalCount++;
+                } else if (!subcommands.isEmpty()) {
+                    var subcommand = subcommands.get(word);
+                    return subcommand == null ? List.of()
+                            : subcommand.getParser().complete(Arrays.copyOfRange(words, i + 1, words.length));
+                } else if (variadicPositionalArgument.isPresent()) {
+                    return List.of();
+                }
+            }
+        }
+
+        if (pendingValueOrdinal != NOT_A_FLAG) {
+            var completer = valueCompleters[pendingValueOrdinal];
+            return completer != null ? completer.complete(prefix) : List.of();
+        }
+        if (prefix.startsWith("-")) {
+            return completionIndex().flagNames(prefix);
+        }
+        if (positionalCount == positionalArguments.size() && !subcommands.isEmpty()) {
+            return completionIndex().subcommandNames(prefix);
         }
+        return List.of();
+    }
+
+    // The script calls back into the program, which must be built with shell completion enabled.
+    public String completionScript(Shell shell) {
+        return CompletionScripts.script(shell, programName);
+    }
+
+    private CompletionIndex completionIndex() {
+        var index = completionIndex;
+        if (index == null) {
+            index = new CompletionIndex(flags, subcommands.keySet());
+            completionIndex = index;
+        }
+        return index;
+    }
 
-        builder.append("FLAGS\n");
-        Flag.OptionalFlagWithoutValue helpPseudoFlag = new Flag.OptionalFlagWithoutValue("h",
-                Optional.of("help"), "Print the program usage.");
-        builder.append(flagUsage(helpPseudoFlag));
-        for (Flag flag : requiredFlags) {
-            builder.append(flagUsage(flag));
+    // Up to limit long names closest to the given one, which may start with dashes, in typo distance order.
+    public List<String> suggestFlags(String name, int limit) {
+        var bare = name.startsWith("--") ? name.substring(2) : name;
+        var suggestions = new ArrayList<String>();
+        for (String longName : nameSuggestions().closest(bare, NameSuggestions.maxTypoDistance(bare), limit)) {
+            suggestions.add("--" + longName);
         }
-        for (Flag flag : optionalFlags) {
-            builder.append(flagUsage(flag));
+        return suggestions;
+    }
+
+    // Built on the first unknown flag, as the index over thousands of names is wasted on correct command lines.
+    private NameSuggestions nameSuggestions() {
+        var suggestions = nameSuggestions;
+        if (suggestions == null) {
+            var longNames = new ArrayList<String>();
+            for (Flag flag : flags) {
+                flag.getLongName().ifPresent(longNames::add);
+            }
+            suggestions = new NameSuggestions(longNames);
+            nameSuggestions = suggestions;
         }
-        return builder.toString();
+        return suggestions;
     }
 
-    private static String flagUsage(Flag flag) {
-        StringBuilder builder = new StringBuilder();
-        builder.append(INDENTATION)
-                .append('-')
-                .append(flag.getShortName());
-        if (flag.getLongName().isPresent()) {
-            builder.append(" --")
-                    .append(flag.getLongName().get());
+    private void printCompletionsAndExit(String[] words) {
+        for (String candidate : complete(words)) {
+            System.out.println(candidate);
         }
-        if (requiresValue(flag)) {
-            builder.append(" <value>");
+        System.exit(0);
+    }
+
+    public String usage() {
+        return usageLayout().getText();
+    }
+
+    public void printUsage(Appendable out) throws IOException {
+        usageLayout().render(out, 0, 0, null);
+    }
+
+    public void printUsage(Appendable out, int width) throws IOException {
+        usageLayout().render(out, width, 0, null);
+    }
+
+    public void printUsage(Appendable out, int width, int pageHeight, BooleanSupplier nextPage) throws IOException {
+        usageLayout().render(out, width, pageHeight, nextPage);
+    }
+
+    private UsageLayout usageLayout() {
+        var layout = usageLayout;
+        if (layout == null) {
+            layout = UsageLayout.of(programName, programDescription, flags, positionalArguments,
+                    variadicPositionalArgument, List.copyOf(subcommands.values()));
+            usageLayout = layout;
         }
-        builder.append('\n')
-                .append(INDENTATION)
-                .append(INDENTATION)
-                .append(" : [")
-                .append(isRequired(flag) ? "Required" : "Optional")
-                .append("] ");
-        if (hasDefaultValue(flag)) {
-            builder.append("(default=").append(((HasDefaultValue<?>) flag).getDefaultValue()).append(") ");
+        return layout;
+    }
+
+    private void printHelpAndExit() {
+        try {
+            printUsage(System.out, terminalWidth());
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
         }
-        builder.append(flag.getDescription())
-                .append('\n');
-        return builder.toString();
+        System.out.println();
+        System.exit(0);
     }
 
-    private Collection<Flag> getAllFlags() {
-        return shortNameMap.values();
+    static int terminalWidth() {
+        var columns = System.getenv("COLUMNS");
+        if (columns == null) {
+            return 0;
+        }
+        try {
+            return Integer.parseInt(columns.trim());
+        } catch (NumberFormatException e) {
+            return 0;
+        }
     }
 
-    private static boolean hasDefaultValue(Flag flag) {
+    static boolean hasDefaultValue(Flag flag) {
         return flag instanceof HasDefaultValue;
     }
 
-    private static boolean requiresValue(Flag flag) {
+    static boolean requiresValue(Flag flag) {
         return flag instanceof RequiresValue;
     }
 
-    private static boolean isRequired(Flag flag) {
+    static boolean isRequired(Flag flag) {
         return flag instanceof FlagMustAppear;
     }
 }
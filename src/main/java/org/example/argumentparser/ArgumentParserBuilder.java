@@ -1,13 +1,31 @@
 package org.example.argumentparser;
 
+import java.nio.file.Path;
+import java.time.Duration;
 import java.util.*;
+import java.util.function.Function;
+import java.util.function.Supplier;
 
 public class ArgumentParserBuilder {
 
     private final String programName;
-    private final Set<Flag> flags = new HashSet<>();
+    private final Set<Flag> flags = new LinkedHashSet<>();
+    private final Set<String> shortNames = new HashSet<>();
+    private final Set<String> longNames = new HashSet<>();
     private final List<PositionalArgument> positionalArguments = new ArrayList<>();
+    private final List<FlagConstraints.Rule> constraints = new ArrayList<>();
+    private final Map<String, Subcommand> subcommands = new LinkedHashMap<>();
+    private final Map<Flag, String> environmentVariables = new IdentityHashMap<>();
+    private Optional<Path> configFile = Optional.empty();
+    private Function<String, String> environment = System::getenv;
+    private final Map<Flag, ValueCompleter> valueCompleters = new IdentityHashMap<>();
+    private boolean shellCompletion = false;
+    private final Map<Flag, ConverterCache> converterCaches = new IdentityHashMap<>();
+    private Optional<VariadicPositionalArgument> variadicPositionalArgument = Optional.empty();
     private Optional<String> programDescription = Optional.empty();
+    private boolean expandResponseFiles = false;
+    private Optional<Duration> conversionDeadline = Optional.empty();
+    private ParseListener listener = ParseListener.NONE;
 
     private ArgumentParserBuilder(String programName) {
         this.programName = programName;
@@ -18,7 +36,10 @@ public class ArgumentParserBuilder {
     }
 
     public ArgumentParser build() {
-        return new ArgumentParser(programName, programDescription, flags, positionalArguments);
+        return new ArgumentParser(programName, programDescription, flags, positionalArguments,
+                variadicPositionalArgument, expandResponseFiles, conversionDeadline, constraints, listener,
+                List.copyOf(subcommands.values()), environmentVariables, configFile, environment, valueCompleters,
+                shellCompletion, converterCaches);
     }
 
     public ArgumentParserBuilder setProgramDescription(String programDescription) {
@@ -26,18 +47,36 @@ public class ArgumentParserBuilder {
         return this;
     }
 
-    public ArgumentParserBuilder addFlag(Flag flag) {
-        if (flag.isParsed()) {
-            throw new IllegalArgumentException("Provided Flag is already parsed.");
+    public ArgumentParserBuilder expandResponseFiles() {
+        this.expandResponseFiles = true;
+        return this;
+    }
+
+    // Runs the converters of eagerly converted flags concurrently, on virtual threads where the runtime has them.
+    // Parsing fails with the first conversion that fails, or if the conversions take longer than the deadline.
+    public ArgumentParserBuilder convertConcurrently(Duration deadline) {
+        if (deadline.isNegative() || deadline.isZero()) {
+            throw new IllegalArgumentException("Conversion deadline must be positive: " + deadline);
         }
-        boolean shortNameAlreadyRegistered = flags.stream()
-                .anyMatch(f -> f.getShortName().equals(flag.getShortName()));
-        boolean longNameAlreadyRegistered = flags.stream()
-                .anyMatch(f -> f.getLongName().isPresent() && flag.getLongName().isPresent()
-                        && f.getLongName().get().equals(flag.getLongName().get()));
+        this.conversionDeadline = Optional.of(deadline);
+        return this;
+    }
+
+    public ArgumentParserBuilder setParseListener(ParseListener listener) {
+        this.listener = listener;
+        return this;
+    }
+
+    public ArgumentParserBuilder addFlag(Flag flag) {
+        boolean shortNameAlreadyRegistered = flag.getOptionalShortName().isPresent()
+                && shortNames.contains(flag.getOptionalShortName().get());
+        boolean longNameAlreadyRegistered = flag.getLongName().isPresent()
+                && longNames.contains(flag.getLongName().get());
         if (shortNameAlreadyRegistered || longNameAlreadyRegistered) {
             throw new IllegalStateException("Provided flag is already registered.");
         }
+        flag.getOptionalShortName().ifPresent(shortNames::add);
+        flag.getLongName().ifPresent(longNames::add);
         flags.add(flag);
         return this;
     }
@@ -50,9 +89,6 @@ public class ArgumentParserBuilder {
     }
 
     public ArgumentParserBuilder addPositionalArgument(PositionalArgument arg) {
-        if (arg.isParsed()) {
-            throw new IllegalArgumentException("Positional Argument provided is already parsed.");
-        }
         if (positionalArguments.contains(arg)) {
             throw new IllegalStateException("Positional Argument already registered.");
         }
@@ -67,4 +103,96 @@ public class ArgumentParserBuilder {
         return this;
     }
 
+    public ArgumentParserBuilder setVariadicPositionalArgument(VariadicPositionalArgument arg) {
+        if (variadicPositionalArgument.isPresent()) {
+            throw new IllegalStateException("Variadic Positional Argument already registered.");
+        }
+        if (!subcommands.isEmpty()) {
+            throw new IllegalStateException("A parser with subcommands cannot have a Variadic Positional Argument.");
+        }
+        variadicPositionalArgument = Optional.of(arg);
+        return this;
+    }
+
+    // The flags of a constraint must be added to this builder as well; all constraints are checked after parsing.
+    public ArgumentParserBuilder addMutuallyExclusiveFlags(Flag ...flags) {
+        return limitFlagCount(0, 1, flags);
+    }
+
+    public ArgumentParserBuilder addAtLeastOneOfFlags(Flag ...flags) {
+        return limitFlagCount(1, flags.length, flags);
+    }
+
+    public ArgumentParserBuilder limitFlagCount(int minimum, int maximum, Flag ...flags) {
+        constraints.add(FlagConstraints.Rule.count(flags, minimum, maximum));
+        return this;
+    }
+
+    public ArgumentParserBuilder addFlagDependency(Flag flag, Flag ...requiredFlags) {
+        constraints.add(FlagConstraints.Rule.dependency(flag, requiredFlags));
+        return this;
+    }
+
+    // The subcommand is selected by the first argument after the positional arguments. Its parser is only built
+    // when it is selected, so the supplier should create its flags as well.
+    public ArgumentParserBuilder addSubcommand(String name, String description, Supplier<ArgumentParser> parser) {
+        if (variadicPositionalArgument.isPresent()) {
+            throw new IllegalStateException("A parser with a Variadic Positional Argument cannot have subcommands.");
+        }
+        if (subcommands.containsKey(name)) {
+            throw new IllegalStateException("Subcommand already registered: " + name);
+        }
+        subcommands.put(name, new Subcommand(name, description, parser));
+        return this;
+    }
+
+    // Flags missing from the command line are looked up in their environment variable, then in the config
+    // file, before falling back to their default value.
+    public ArgumentParserBuilder readFromEnvironment(Flag flag, String variableName) {
+        if (environmentVariables.containsKey(flag)) {
+            throw new IllegalStateException("Flag already reads from an environment variable: "
+                    + environmentVariables.get(flag));
+        }
+        environmentVariables.put(flag, variableName);
+        return this;
+    }
+
+    // The file is read the first time a parse misses a flag, and not again: later changes to it are not seen.
+    public ArgumentParserBuilder readFromConfigFile(Path configFile) {
+        this.configFile = Optional.of(configFile);
+        return this;
+    }
+
+    // Replaces System.getenv as the source of environment variables, e.g. with the environment of a client.
+    public ArgumentParserBuilder useEnvironment(Function<String, String> environment) {
+        this.environment = environment;
+        return this;
+    }
+
+    // Makes parse answer the callbacks of the scripts from ArgumentParser.completionScript: a command line
+    // starting with "__complete" prints the completions of the words after it and exits.
+    public ArgumentParserBuilder enableShellCompletion() {
+        this.shellCompletion = true;
+        return this;
+    }
+
+    public ArgumentParserBuilder completeValues(Flag flag, ValueCompleter completer) {
+        if (!ArgumentParser.requiresValue(flag)) {
+            throw new IllegalArgumentException("Flag does not take a value: " + flag.getName());
+        }
+        valueCompleters.put(flag, completer);
+        return this;
+    }
+
+    // Declares the converter of the flag pure, so that it runs once per distinct raw value the cache still holds
+    // instead of once per parse. Hits are reported to the parse listener as conversions, only faster.
+    public ArgumentParserBuilder cacheConversions(Flag flag, ConverterCache cache) {
+        if (!ArgumentParser.requiresValue(flag) || flag instanceof Flag.PrimitiveFlag) {
+            throw new IllegalArgumentException("Flag has no converter to cache: " + flag.getName());
+        }
+        cache.bind(flag);
+        converterCaches.put(flag, cache);
+        return this;
+    }
+
 }
@@ -0,0 +1,184 @@
+package org.example.argumentparser;
+
+import java.util.*;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+// Parses many command lines with one parser across all cores. A feeder thread reads the input in chunks into a
+// bounded queue, workers parse whole chunks so that the queues are touched once per chunk rather than once per
+// line, and the calling thread hands the results to the consumer, one at a time and, if asked, in input order.
+// A semaphore bounds the chunks in flight, so neither the queues nor the reordering grow with the input.
+final class BatchParser {
+
+    private static final int CHUNK_SIZE = 256;
+    private static final int CHUNKS_PER_WORKER = 4;
+
+    private static final class Chunk {
+        private final long firstIndex;
+        private final Object[] inputs;
+        private BatchResult[] results;
+
+        private Chunk(long firstIndex, Object[] inputs) {
+            this.firstIndex = firstIndex;
+            this.inputs = inputs;
+        }
+    }
+
+    // Marks the end of the input for a worker, and for the calling thread the end of a worker's results or that
+    // a thread died.
+    private static final Chunk END = new Chunk(-1, new Object[0]);
+
+    private final ArgumentParser parser;
+    private final int workerCount;
+
+    BatchParser(ArgumentParser parser, int workerCount) {
+        this.parser = parser;
+        this.workerCount = workerCount;
+    }
+
+    // Inputs are turned into command lines by the workers, so that a line failing to split only fails itself.
+    <T> void parseAll(Iterator<T> inputs, Function<T, String[]> commandLine, boolean keepOrder,
+                      Consumer<BatchResult> consumer) {
+        var inFlight = new Semaphore(workerCount * CHUNKS_PER_WORKER);
+        BlockingQueue<Chunk> input = new ArrayBlockingQueue<>(workerCount * CHUNKS_PER_WORKER);
+        BlockingQueue<Chunk> output = new LinkedBlockingQueue<>();
+        var inputFailure = new RuntimeException[1];
+        // An Error that killed the feeder or a worker, such as a StackOverflowError in a converter.
+        var threadFailure = new AtomicReference<Throwable>();
+
+        var threads = new ArrayList<Thread>();
+        threads.add(new Thread(() -> feed(inputs, inFlight, input, output, inputFailure, threadFailure),
+                "batch-parse-feeder"));
+        for (int i = 0; i < workerCount; i++) {
+            threads.add(new Thread(() -> work(input, output, commandLine, threadFailure), "batch-parse-worker-" + i));
+        }
+        for (Thread thread : threads) {
+            thread.setDaemon(true);
+            thread.start();
+        }
+
+        try {
+            var pending = new HashMap<Long, Chunk>();
+            long nextIndex = 0;
+            int finishedWorkers = 0;
+            while (finishedWorkers < workerCount) {
+                var chunk = output.take();
+                if (chunk == END) {
+                    if (threadFailure.get() != null) {
+                        break;
+                    }
+                    finishedWorkers++;
+                    continue;
+                }
+                if (!keepOrder) {
+                    deliver(chunk, inFlight, consumer);
+                    continue;
+                }
+                pending.put(chunk.firstIndex, chunk);
+                while ((chunk = pending.remove(nextIndex)) != null) {
+                    deliver(chunk, inFlight, consumer);
+                    nextIndex += chunk.inputs.length;
+                }
+            }
+            if (threadFailure.get() == null) {
+                for (Thread thread : threads) {
+                    thread.join();
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while parsing command lines", e);
+        } finally {
+            for (Thread thread : threads) {
+                thread.interrupt();
+            }
+        }
+        var failure = threadFailure.get();
+        if (failure instanceof Error) {
+            throw (Error) failure;
+        }
+        if (failure != null) {
+            throw new IllegalStateException("Batch parsing thread failed", failure);
+        }
+        if (inputFailure[0] != null) {
+            throw inputFailure[0];
+        }
+    }
+
+    private void feed(Iterator<?> inputs, Semaphore inFlight, BlockingQueue<Chunk> input, BlockingQueue<Chunk> output,
+                      RuntimeException[] inputFailure, AtomicReference<Throwable> threadFailure) {
+        try {
+            try {
+                long index = 0;
+                while (inputs.hasNext()) {
+                    var chunk = new ArrayList<Object>(CHUNK_SIZE);
+                    while (chunk.size() < CHUNK_SIZE && inputs.hasNext()) {
+                        chunk.add(inputs.next());
+                    }
+                    inFlight.acquire();
+                    input.put(new Chunk(index, chunk.toArray()));
+                    index += chunk.size();
+                }
+            } catch (RuntimeException e) {
+                // Seen by the calling thread once the workers have finished the chunks read before it.
+                inputFailure[0] = e;
+            }
+            for (int i = 0; i < workerCount; i++) {
+                input.put(END);
+            }
+        } catch (InterruptedException e) {
+            // The calling thread gave up on the batch.
+        } catch (Throwable e) {
+            // The workers would wait for input forever, so the calling thread is woken up to give up on the batch.
+            threadFailure.compareAndSet(null, e);
+            output.add(END);
+        }
+    }
+
+    // Always posts END, so that the calling thread is never left waiting for a worker that died.
+    @SuppressWarnings("unchecked")
+    private <T> void work(BlockingQueue<Chunk> input, BlockingQueue<Chunk> output, Function<T, String[]> commandLine,
+                          AtomicReference<Throwable> threadFailure) {
+        try {
+            Chunk chunk;
+            while ((chunk = input.take()) != END) {
+                var results = new BatchResult[chunk.inputs.length];
+                for (int i = 0; i < results.length; i++) {
+                    results[i] = parse(chunk.firstIndex + i, (T) chunk.inputs[i], commandLine);
+                }
+                chunk.results = results;
+                output.add(chunk);
+            }
+        } catch (InterruptedException e) {
+            // The calling thread gave up on the batch.
+        } catch (Throwable e) {
+            threadFailure.compareAndSet(null, e);
+        } finally {
+            output.add(END);
+        }
+    }
+
+    private <T> BatchResult parse(long index, T input, Function<T, String[]> commandLine) {
+        try {
+            var result = parser.parseWithoutExit(commandLine.apply(input));
+            if (result.isHelpRequested()) {
+                return new BatchResult(index, null, new IllegalArgumentException("Help requested"));
+            }
+            return new BatchResult(index, result, null);
+        } catch (RuntimeException e) {
+            return new BatchResult(index, null, e);
+        }
+    }
+
+    private static void deliver(Chunk chunk, Semaphore inFlight, Consumer<BatchResult> consumer) {
+        inFlight.release();
+        for (BatchResult result : chunk.results) {
+            consumer.accept(result);
+        }
+    }
+}
@@ -0,0 +1,35 @@
+package org.example.argumentparser;
+
+import java.util.Optional;
+
+// The outcome of one command line of ArgumentParser.parseAll: its result, or the exception parsing it threw.
+// A command line asking for help fails with an IllegalArgumentException, since batches never print usage.
+public final class BatchResult {
+
+    private final long index;
+    private final ParseResult result;
+    private final RuntimeException error;
+
+    BatchResult(long index, ParseResult result, RuntimeException error) {
+        this.index = index;
+        this.result = result;
+        this.error = error;
+    }
+
+    // The position of the command line in the input, starting at zero; for a file, its line number minus one.
+    public long getIndex() {
+        return index;
+    }
+
+    public boolean isSuccess() {
+        return error == null;
+    }
+
+    public Optional<ParseResult> getResult() {
+        return Optional.ofNullable(result);
+    }
+
+    public Optional<RuntimeException> getError() {
+        return Optional.ofNullable(error);
+    }
+}
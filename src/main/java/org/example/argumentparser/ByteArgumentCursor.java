@@ -0,0 +1,140 @@
+package org.example.argumentparser;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+
+// Walks the arguments in the bytes between a buffer's position and limit without decoding them. token() is a
+// view of the argument's bytes, one char per byte: every char a flag name or a help token can hold is ASCII,
+// so matching names against the bytes is exact, and a non-ASCII byte never matches. Only tokenString(), asked
+// for by values and positional arguments, decodes the argument as UTF-8. The buffer itself is not moved.
+final class ByteArgumentCursor implements ArgumentCursor {
+
+    private final ByteBuffer bytes;
+    private final ArgumentFraming framing;
+    private final int start;
+    private final int end;
+    private final Slice token;
+    private int position;
+    private byte[] scratch;
+
+    ByteArgumentCursor(ByteBuffer bytes, ArgumentFraming framing) {
+        // Absolute reads only, in big-endian order whatever the caller's buffer is set to.
+        this.bytes = bytes.duplicate().order(ByteOrder.BIG_ENDIAN);
+        this.framing = framing;
+        this.start = bytes.position();
+        this.end = bytes.limit();
+        this.token = new Slice(this.bytes);
+        this.position = start;
+    }
+
+    @Override
+    public boolean advance() {
+        if (position >= end) {
+            return false;
+        }
+        if (framing == ArgumentFraming.NUL_TERMINATED) {
+            int tokenEnd = position;
+            while (tokenEnd < end && bytes.get(tokenEnd) != 0) {
+                tokenEnd++;
+            }
+            token.of(position, tokenEnd);
+            position = Math.min(tokenEnd + 1, end);
+        } else {
+            int tokenEnd = frameEnd(position);
+            token.of(position + Integer.BYTES, tokenEnd);
+            position = tokenEnd;
+        }
+        return true;
+    }
+
+    @Override
+    public CharSequence token() {
+        return token;
+    }
+
+    @Override
+    public String tokenString() {
+        int length = token.length();
+        if (bytes.hasArray()) {
+            return new String(bytes.array(), bytes.arrayOffset() + token.start, length, StandardCharsets.UTF_8);
+        }
+        if (scratch == null || scratch.length < length) {
+            scratch = new byte[Math.max(length, 64)];
+        }
+        bytes.get(token.start, scratch, 0, length);
+        return new String(scratch, 0, length, StandardCharsets.UTF_8);
+    }
+
+    // Counts the arguments in a separate pass, for listeners and events only. A malformed frame ends the count.
+    @Override
+    public int count() {
+        int count = 0;
+        for (int at = start; at < end; count++) {
+            if (framing == ArgumentFraming.NUL_TERMINATED) {
+                while (at < end && bytes.get(at) != 0) {
+                    at++;
+                }
+                at++;
+            } else if (end - at < Integer.BYTES || bytes.getInt(at) < 0
+                    || bytes.getInt(at) > end - at - Integer.BYTES) {
+                break;
+            } else {
+                at += Integer.BYTES + bytes.getInt(at);
+            }
+        }
+        return count;
+    }
+
+    private int frameEnd(int frameStart) {
+        if (end - frameStart < Integer.BYTES) {
+            throw new IllegalArgumentException("Truncated argument length at byte " + (frameStart - start));
+        }
+        int length = bytes.getInt(frameStart);
+        if (length < 0 || length > end - frameStart - Integer.BYTES) {
+            throw new IllegalArgumentException("Argument of " + length + " bytes does not fit at byte "
+                    + (frameStart - start));
+        }
+        return frameStart + Integer.BYTES + length;
+    }
+
+    // The bytes [start, end) of the buffer.
+    private static final class Slice implements CharSequence {
+        private final ByteBuffer bytes;
+        private int start;
+        private int end;
+
+        private Slice(ByteBuffer bytes) {
+            this.bytes = bytes;
+        }
+
+        private Slice of(int start, int end) {
+            this.start = start;
+            this.end = end;
+            return this;
+        }
+
+        @Override
+        public int length() {
+            return end - start;
+        }
+
+        @Override
+        public char charAt(int index) {
+            return (char) (bytes.get(start + index) & 0xFF);
+        }
+
+        @Override
+        public CharSequence subSequence(int from, int to) {
+            return new Slice(bytes).of(start + from, start + to);
+        }
+
+        // Decoded as UTF-8, for messages and for the values cut out of an inline "--name=value".
+        @Override
+        public String toString() {
+            var encoded = new byte[length()];
+            bytes.get(start, encoded);
+            return new String(encoded, StandardCharsets.UTF_8);
+        }
+    }
+}
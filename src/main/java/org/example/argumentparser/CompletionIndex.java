@@ -0,0 +1,45 @@
+package org.example.argumentparser;
+
+import java.util.*;
+
+// The names shell completion offers, sorted once so that the candidates for a prefix are the contiguous run
+// found by a binary search, as a prefix trie would give them, without building any per-character nodes.
+final class CompletionIndex {
+
+    private final String[] flagNames;
+    private final String[] subcommandNames;
+
+    CompletionIndex(Flag[] flags, Collection<String> subcommandNames) {
+        var names = new ArrayList<String>();
+        names.add("-h");
+        names.add("--help");
+        for (Flag flag : flags) {
+            flag.getOptionalShortName().ifPresent(name -> names.add("-" + name));
+            flag.getLongName().ifPresent(name -> names.add("--" + name));
+        }
+        this.flagNames = names.toArray(new String[0]);
+        Arrays.sort(this.flagNames);
+        this.subcommandNames = subcommandNames.toArray(new String[0]);
+        Arrays.sort(this.subcommandNames);
+    }
+
+    List<String> flagNames(String prefix) {
+        return withPrefix(flagNames, prefix);
+    }
+
+    List<String> subcommandNames(String prefix) {
+        return withPrefix(subcommandNames, prefix);
+    }
+
+    private static List<String> withPrefix(String[] sorted, String prefix) {
+        int start = Arrays.binarySearch(sorted, prefix);
+        if (start < 0) {
+            start = -start - 1;
+        }
+        int end = start;
+        while (end < sorted.length && sorted[end].startsWith(prefix)) {
+            end++;
+        }
+        return Arrays.asList(sorted).subList(start, end);
+    }
+}
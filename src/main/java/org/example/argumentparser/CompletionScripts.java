@@ -0,0 +1,45 @@
+package org.example.argumentparser;
+
+// Writes the completion scripts of a program. The scripts call back into the program with the words typed
+// so far, the last of them being the word to complete; an empty answer falls back to completing file names.
+final class CompletionScripts {
+
+    static final String COMPLETE_COMMAND = "__complete";
+
+    private CompletionScripts() {
+    }
+
+    static String script(Shell shell, String programName) {
+        var function = "_" + programName.replaceAll("[^a-zA-Z0-9_]", "_") + "_complete";
+        var command = programName + " " + COMPLETE_COMMAND;
+        switch (shell) {
+            case BASH:
+                return "# bash completion for " + programName + "\n"
+                        + function + "() {\n"
+                        + "    local IFS=$'\\n'\n"
+                        + "    COMPREPLY=($(" + command + " \"${COMP_WORDS[@]:1:COMP_CWORD}\" 2>/dev/null))\n"
+                        + "}\n"
+                        + "complete -o default -F " + function + " " + programName + "\n";
+            case ZSH:
+                return "#compdef " + programName + "\n"
+                        + function + "() {\n"
+                        + "    local -a candidates\n"
+                        + "    candidates=(${(f)\"$(" + command + " \"${(@)words[2,CURRENT]}\" 2>/dev/null)\"})\n"
+                        + "    if (( ${#candidates} )); then\n"
+                        + "        compadd -a candidates\n"
+                        + "    else\n"
+                        + "        _files\n"
+                        + "    fi\n"
+                        + "}\n"
+                        + "compdef " + function + " " + programName + "\n";
+            case FISH:
+                return "# fish completion for " + programName + "\n"
+                        + "function " + function + "\n"
+                        + "    " + command + " (commandline -opc)[2..-1] (commandline -ct) 2>/dev/null\n"
+                        + "end\n"
+                        + "complete -c " + programName + " -a '(" + function + ")'\n";
+            default:
+                throw new IllegalArgumentException("Unsupported shell: " + shell);
+        }
+    }
+}
@@ -0,0 +1,106 @@
+package org.example.argumentparser;
+
+import java.lang.reflect.Method;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.concurrent.*;
+
+// Runs the converters of one parse concurrently, so that converters doing I/O cost as much as the slowest of them
+// rather than their sum. Uses a virtual thread per conversion where the runtime has them, and a shared pool of
+// daemon threads otherwise. The first failure, or running past the deadline, cancels the conversions still running.
+final class ConcurrentConversion {
+
+    private static final Method NEW_VIRTUAL_THREAD_EXECUTOR = virtualThreadExecutorFactory();
+    private static volatile ExecutorService platformThreads;
+
+    private static final Duration LONGEST_DEADLINE = Duration.ofNanos(Long.MAX_VALUE);
+
+    private final Duration deadline;
+    // Saturated, as a deadline of some 292 years or more does not fit in a long of nanoseconds.
+    private final long deadlineNanos;
+
+    ConcurrentConversion(Duration deadline) {
+        this.deadline = deadline;
+        this.deadlineNanos = deadline.compareTo(LONGEST_DEADLINE) > 0 ? Long.MAX_VALUE : deadline.toNanos();
+    }
+
+    // Converts rawValues[ordinals[i]] into values[ordinals[i]] for the first count ordinals.
+    void convert(ArgumentParser parser, Flag[] flags, String[] rawValues, int[] ordinals, int count, Object[] values) {
+        // Measured as elapsed time, which unlike start + deadlineNanos cannot overflow.
+        long start = System.nanoTime();
+        var virtualThreads = newVirtualThreadExecutor();
+        var executor = virtualThreads != null ? virtualThreads : platformThreads();
+        var completion = new ExecutorCompletionService<Void>(executor);
+        var futures = new ArrayList<Future<Void>>(count);
+        try {
+            for (int i = 0; i < count; i++) {
+                int ordinal = ordinals[i];
+                futures.add(completion.submit(() -> {
+                    values[ordinal] = parser.convert(flags[ordinal], rawValues[ordinal]);
+                    return null;
+                }));
+            }
+            for (int done = 0; done < count; done++) {
+                var future = completion.poll(deadlineNanos - (System.nanoTime() - start), TimeUnit.NANOSECONDS);
+                if (future == null) {
+                    throw new IllegalStateException("Flag value conversion did not finish within " + deadline);
+                }
+                try {
+                    future.get();
+                } catch (ExecutionException e) {
+                    if (e.getCause() instanceof RuntimeException) {
+                        throw (RuntimeException) e.getCause();
+                    }
+                    throw new IllegalStateException("Flag value conversion failed", e.getCause());
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while converting flag values", e);
+        } finally {
+            for (var future : futures) {
+                future.cancel(true);
+            }
+            if (virtualThreads != null) {
+                virtualThreads.shutdown();
+            }
+        }
+    }
+
+    private static Method virtualThreadExecutorFactory() {
+        try {
+            return Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+        } catch (NoSuchMethodException e) {
+            return null;
+        }
+    }
+
+    private static ExecutorService newVirtualThreadExecutor() {
+        if (NEW_VIRTUAL_THREAD_EXECUTOR == null) {
+            return null;
+        }
+        try {
+            return (ExecutorService) NEW_VIRTUAL_THREAD_EXECUTOR.invoke(null);
+        } catch (ReflectiveOperationException e) {
+            return null;
+        }
+    }
+
+    private static ExecutorService platformThreads() {
+        var executor = platformThreads;
+        if (executor == null) {
+            synchronized (ConcurrentConversion.class) {
+                executor = platformThreads;
+                if (executor == null) {
+                    executor = Executors.newCachedThreadPool(task -> {
+                        var thread = new Thread(task, "argument-parser-converter");
+                        thread.setDaemon(true);
+                        return thread;
+                    });
+                    platformThreads = executor;
+                }
+            }
+        }
+        return executor;
+    }
+}
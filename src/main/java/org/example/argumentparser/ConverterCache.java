@@ -0,0 +1,165 @@
+package org.example.argumentparser;
+
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+
+// Remembers the converted values of one flag by raw value, so that a pure converter runs once per distinct raw
+// value rather than once per parse. The cache can be shared by parsers that have the flag, e.g. those of a
+// batch or a daemon. It holds at most maximumSize values and evicts the least recently used; it is split into
+// segments by the hash of the raw value, each with its own lock and share of the bound, so that parses on many
+// threads rarely wait for each other. Failed conversions are not cached.
+public final class ConverterCache {
+
+    private static final int MAX_SEGMENTS = 16;
+
+    private final int maximumSize;
+    private final Optional<Duration> expiry;
+    private final long expiryNanos;
+    private final Segment[] segments;
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+    private Flag flag;
+
+    public ConverterCache(int maximumSize) {
+        this(maximumSize, Optional.empty());
+    }
+
+    // Values older than expireAfterWrite are converted again.
+    public ConverterCache(int maximumSize, Duration expireAfterWrite) {
+        this(maximumSize, Optional.of(expireAfterWrite));
+    }
+
+    private ConverterCache(int maximumSize, Optional<Duration> expiry) {
+        if (maximumSize < 1) {
+            throw new IllegalArgumentException("Cache size must be positive: " + maximumSize);
+        }
+        if (expiry.isPresent() && (expiry.get().isNegative() || expiry.get().isZero())) {
+            throw new IllegalArgumentException("Cache expiry must be positive: " + expiry.get());
+        }
+        this.maximumSize = maximumSize;
+        this.expiry = expiry;
+        this.expiryNanos = expiry.isPresent() ? saturatedNanos(expiry.get()) : Long.MAX_VALUE;
+        // A power of two, and never so many that a segment would be bounded to nothing.
+        int segmentCount = Math.min(MAX_SEGMENTS, Integer.highestOneBit(maximumSize));
+        this.segments = new Segment[segmentCount];
+        for (int i = 0; i < segmentCount; i++) {
+            int segmentSize = maximumSize / segmentCount + (i < maximumSize % segmentCount ? 1 : 0);
+            segments[i] = new Segment(segmentSize);
+        }
+    }
+
+    public int getMaximumSize() {
+        return maximumSize;
+    }
+
+    public Optional<Duration> getExpiry() {
+        return expiry;
+    }
+
+    public long getHitCount() {
+        return hits.sum();
+    }
+
+    public long getMissCount() {
+        return misses.sum();
+    }
+
+    public long getEvictionCount() {
+        return evictions.sum();
+    }
+
+    public int size() {
+        int size = 0;
+        for (Segment segment : segments) {
+            synchronized (segment) {
+                size += segment.size();
+            }
+        }
+        return size;
+    }
+
+    public void clear() {
+        for (Segment segment : segments) {
+            synchronized (segment) {
+                segment.clear();
+            }
+        }
+    }
+
+    // A cache converts for a single flag; the same flag may be cached for any number of parsers.
+    synchronized void bind(Flag flag) {
+        if (this.flag != null && this.flag != flag) {
+            throw new IllegalArgumentException("Converter cache already caches flag " + this.flag.getName()
+                    + ", cannot cache flag " + flag.getName());
+        }
+        this.flag = flag;
+    }
+
+    // The converter runs outside the lock, so two threads missing on the same raw value may both run it.
+    Object get(String rawValue, Function<String, Object> converter) {
+        var segment = segments[spread(rawValue.hashCode()) & (segments.length - 1)];
+        long now = expiry.isPresent() ? System.nanoTime() : 0;
+        synchronized (segment) {
+            var entry = segment.get(rawValue);
+            if (entry != null && now - entry.writtenAt < expiryNanos) {
+                hits.increment();
+                return entry.value;
+            }
+        }
+        misses.increment();
+        var value = converter.apply(rawValue);
+        synchronized (segment) {
+            segment.put(rawValue, new Entry(value, now));
+        }
+        return value;
+    }
+
+    private static int spread(int hash) {
+        return hash ^ (hash >>> 16);
+    }
+
+    private static long saturatedNanos(Duration duration) {
+        try {
+            return duration.toNanos();
+        } catch (ArithmeticException e) {
+            return Long.MAX_VALUE;
+        }
+    }
+
+    private static final class Entry {
+        private final Object value;
+        private final long writtenAt;
+
+        private Entry(Object value, long writtenAt) {
+            this.value = value;
+            this.writtenAt = writtenAt;
+        }
+    }
+
+    // Kept in access order, so the eldest entry is the least recently used.
+    private final class Segment extends LinkedHashMap<String, Entry> {
+        // Never serialized, but LinkedHashMap is Serializable.
+        private static final long serialVersionUID = 1L;
+
+        private final int maximumSize;
+
+        private Segment(int maximumSize) {
+            super(16, 0.75f, true);
+            this.maximumSize = maximumSize;
+        }
+
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest) {
+            if (size() > maximumSize) {
+                evictions.increment();
+                return true;
+            }
+            return false;
+        }
+    }
+}
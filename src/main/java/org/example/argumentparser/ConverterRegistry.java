@@ -0,0 +1,49 @@
+package org.example.argumentparser;
+
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.Map;
+import java.util.function.Function;
+
+// Names the converters of a schema snapshot. A converter is recognised by identity, so the function registered
+// must be the very instance given to useConverter; the same registry, or one with the same ids, is needed to
+// load the snapshot. Flags without a converter of their own use the built-in "string" id.
+public final class ConverterRegistry {
+
+    static final String STRING = "string";
+
+    private final Map<String, Function<String, ?>> converters = new HashMap<>();
+    private final Map<Function<String, ?>, String> ids = new IdentityHashMap<>();
+
+    public ConverterRegistry() {
+        register(STRING, Function.identity());
+    }
+
+    public ConverterRegistry register(String id, Function<String, ?> converter) {
+        if (converters.containsKey(id)) {
+            throw new IllegalStateException("Converter id already registered: " + id);
+        }
+        if (ids.containsKey(converter)) {
+            throw new IllegalStateException("Converter already registered as: " + ids.get(converter));
+        }
+        converters.put(id, converter);
+        ids.put(converter, id);
+        return this;
+    }
+
+    String idOf(Flag flag, Function<String, ?> converter) {
+        var id = ids.get(converter);
+        if (id == null) {
+            throw new IllegalArgumentException("Converter of flag " + flag.getName() + " is not registered.");
+        }
+        return id;
+    }
+
+    Function<String, ?> converter(String id) {
+        var converter = converters.get(id);
+        if (converter == null) {
+            throw new IllegalArgumentException("Unknown converter id in schema snapshot: " + id);
+        }
+        return converter;
+    }
+}
@@ -0,0 +1,70 @@
+package org.example.argumentparser;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+
+// Wire format between ParseClient and ParseDaemon. A request is the client's terminal width, the argument count
+// and the arguments; a reply is the exit status and the text for standard output and standard error. Numbers are
+// big-endian 32-bit ints, and strings are a length followed by that many bytes of UTF-8.
+final class DaemonProtocol {
+
+    static final int EXIT_OK = 0;
+    static final int EXIT_FAILURE = 1;
+    static final int EXIT_USAGE = 2;
+
+    private static final int MAX_ARGUMENTS = 1 << 20;
+    private static final int MAX_STRING_BYTES = 1 << 26;
+
+    private DaemonProtocol() {
+    }
+
+    static void writeRequest(DataOutputStream out, int width, String[] args) throws IOException {
+        out.writeInt(width);
+        out.writeInt(args.length);
+        for (String arg : args) {
+            writeString(out, arg);
+        }
+        out.flush();
+    }
+
+    static int readWidth(DataInputStream in) throws IOException {
+        return in.readInt();
+    }
+
+    static String[] readArguments(DataInputStream in) throws IOException {
+        int count = in.readInt();
+        if (count < 0 || count > MAX_ARGUMENTS) {
+            throw new IOException("Malformed request: " + count + " arguments");
+        }
+        var args = new String[count];
+        for (int i = 0; i < count; i++) {
+            args[i] = readString(in);
+        }
+        return args;
+    }
+
+    static void writeReply(DataOutputStream out, int status, String stdout, String stderr) throws IOException {
+        out.writeInt(status);
+        writeString(out, stdout);
+        writeString(out, stderr);
+        out.flush();
+    }
+
+    static void writeString(DataOutputStream out, String value) throws IOException {
+        var bytes = value.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    static String readString(DataInputStream in) throws IOException {
+        int length = in.readInt();
+        if (length < 0 || length > MAX_STRING_BYTES) {
+            throw new IOException("Malformed message: string of " + length + " bytes");
+        }
+        var bytes = new byte[length];
+        in.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
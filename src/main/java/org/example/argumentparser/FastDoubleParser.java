@@ -0,0 +1,86 @@
+package org.example.argumentparser;
+
+// Parses plain decimal literals without allocating. When the significant digits fit in a long that is exactly
+// representable as a double (at most 15 of them) and the decimal exponent is within what double powers of ten
+// represent exactly (|e| <= 22), a single multiplication or division is correctly rounded. Everything else,
+// including hex, NaN, Infinity, type suffixes and surrounding whitespace, goes to Double.parseDouble.
+final class FastDoubleParser {
+
+    private static final int MAX_SIGNIFICANT_DIGITS = 15;
+    private static final double[] POWERS_OF_TEN = {
+            1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10,
+            1e11, 1e12, 1e13, 1e14, 1e15, 1e16, 1e17, 1e18, 1e19, 1e20, 1e21, 1e22,
+    };
+
+    private FastDoubleParser() {
+    }
+
+    static double parseDouble(String value) {
+        int length = value.length();
+        int i = 0;
+        boolean negative = false;
+        if (i < length && (value.charAt(i) == '-' || value.charAt(i) == '+')) {
+            negative = value.charAt(i) == '-';
+            i++;
+        }
+
+        long digits = 0;
+        int significantDigits = 0;
+        int exponent = 0;
+        boolean sawDigit = false;
+        for (; i < length && isDigit(value.charAt(i)); i++) {
+            sawDigit = true;
+            if (digits != 0 || value.charAt(i) != '0') {
+                digits = digits * 10 + (value.charAt(i) - '0');
+                significantDigits++;
+            }
+        }
+        if (i < length && value.charAt(i) == '.') {
+            for (i++; i < length && isDigit(value.charAt(i)); i++) {
+                sawDigit = true;
+                exponent--;
+                if (digits != 0 || value.charAt(i) != '0') {
+                    digits = digits * 10 + (value.charAt(i) - '0');
+                    significantDigits++;
+                }
+            }
+        }
+        if (!sawDigit || significantDigits > MAX_SIGNIFICANT_DIGITS) {
+            return Double.parseDouble(value);
+        }
+
+        if (i < length && (value.charAt(i) == 'e' || value.charAt(i) == 'E')) {
+            i++;
+            boolean negativeExponent = false;
+            if (i < length && (value.charAt(i) == '-' || value.charAt(i) == '+')) {
+                negativeExponent = value.charAt(i) == '-';
+                i++;
+            }
+            int explicitExponent = 0;
+            int exponentStart = i;
+            for (; i < length && isDigit(value.charAt(i)) && i - exponentStart < 4; i++) {
+                explicitExponent = explicitExponent * 10 + (value.charAt(i) - '0');
+            }
+            if (i == exponentStart) {
+                return Double.parseDouble(value);
+            }
+            exponent += negativeExponent ? -explicitExponent : explicitExponent;
+        }
+        if (i != length) {
+            return Double.parseDouble(value);
+        }
+
+        if (digits == 0) {
+            return negative ? -0.0 : 0.0;
+        }
+        if (exponent < -22 || exponent > 22) {
+            return Double.parseDouble(value);
+        }
+        double result = exponent >= 0 ? digits * POWERS_OF_TEN[exponent] : digits / POWERS_OF_TEN[-exponent];
+        return negative ? -result : result;
+    }
+
+    private static boolean isDigit(char c) {
+        return c >= '0' && c <= '9';
+    }
+}
@@ -5,19 +5,22 @@ import java.util.function.Function;
 
 public abstract class Flag {
 
-    private final String shortName;
+    private final Optional<String> shortName;
     private final Optional<String> longName;
     private final String description;
-    private boolean parsed = false;
-    protected boolean appeared = false;
 
-    Flag(String shortName, Optional<String> longName, String description) {
+    Flag(Optional<String> shortName, Optional<String> longName, String description) {
         this.shortName = shortName;
         this.longName = longName;
         this.description = description;
     }
 
+    // Only for flags built with a short name; see getOptionalShortName for flags that may only have a long one.
     public String getShortName() {
+        return shortName.orElseThrow(() -> new IllegalStateException("Flag has no short name: " + getName()));
+    }
+
+    public Optional<String> getOptionalShortName() {
         return shortName;
     }
 
@@ -29,94 +32,111 @@ public abstract class Flag {
         return description;
     }
 
-    protected void assertParsed() {
-        if (!parsed) {
-            throw new IllegalStateException("Flag not parsed yet. Make sure you have called " +
-                    ArgumentParser.class.getSimpleName() + ".parse().");
-        }
+    String getName() {
+        return longName.isPresent() ? longName.get() : shortName.get();
     }
 
-    void markAppeared() {
-        appeared = true;
+    Object convertRawValue(String rawValue) {
+        throw new IllegalStateException("Internal Error: Flag does not take a value: " + getName());
     }
 
-    void markParsed() {
-        parsed = true;
+    boolean convertsLazily() {
+        return false;
     }
 
-    boolean isParsed() {
-        return parsed;
+    // Runs the converter and attributes any failure to this flag.
+    Object convert(String rawValue) {
+        try {
+            return convertRawValue(rawValue);
+        } catch (RuntimeException e) {
+            throw invalidValue(rawValue, e);
+        }
     }
 
-    boolean hasAppeared() {
-        return appeared;
+    IllegalArgumentException invalidValue(String rawValue, RuntimeException cause) {
+        return new IllegalArgumentException("Invalid value for flag " + getName() + ": " + rawValue, cause);
     }
 
     public static class RequiredFlagWithValue<ValueType> extends Flag implements RequiresValue<ValueType>,
             FlagMustAppear {
         private final Function<String, ValueType> converter;
-        private Optional<ValueType> value = Optional.empty();
+        private final boolean lazyConversion;
 
-        RequiredFlagWithValue(String shortName, Optional<String> longName, String description,
-                              Function<String, ValueType> converter) {
+        RequiredFlagWithValue(Optional<String> shortName, Optional<String> longName, String description,
+                              boolean lazyConversion, Function<String, ValueType> converter) {
             super(shortName, longName, description);
             this.converter = converter;
+            this.lazyConversion = lazyConversion;
         }
 
-        void setRawValue(String value) {
-            this.value = Optional.of(converter.apply(value));
+        @Override
+        ValueType convertRawValue(String rawValue) {
+            return converter.apply(rawValue);
         }
 
-        public ValueType getValue() {
-            assertParsed();
-            if (value.isEmpty()) {
-                throw new IllegalStateException("Internal Error");
-            }
-            return value.get();
+        Function<String, ValueType> getConverter() {
+            return converter;
+        }
+
+        @Override
+        boolean convertsLazily() {
+            return lazyConversion;
         }
     }
 
     public static class OptionalFlagWithValue<ValueType> extends Flag implements RequiresValue<ValueType> {
         private final Function<String, ValueType> converter;
-        private Optional<ValueType> value = Optional.empty();
+        private final boolean lazyConversion;
 
-        OptionalFlagWithValue(String shortName, Optional<String> longName, String description,
-                              Function<String, ValueType> converter) {
+        OptionalFlagWithValue(Optional<String> shortName, Optional<String> longName, String description,
+                              boolean lazyConversion, Function<String, ValueType> converter) {
             super(shortName, longName, description);
             this.converter = converter;
+            this.lazyConversion = lazyConversion;
+        }
+
+        @Override
+        ValueType convertRawValue(String rawValue) {
+            return converter.apply(rawValue);
         }
 
-        void setRawValue(String value) {
-            this.value = Optional.of(converter.apply(value));
+        Function<String, ValueType> getConverter() {
+            return converter;
         }
 
-        public Optional<ValueType> getValue() {
-            assertParsed();
-            return value;
+        @Override
+        boolean convertsLazily() {
+            return lazyConversion;
         }
     }
 
     public static class OptionalFlagWithDefaultValue<ValueType> extends Flag implements RequiresValue<ValueType>,
             HasDefaultValue<ValueType> {
         private final Function<String, ValueType> converter;
+        private final boolean lazyConversion;
         private final ValueType defaultValue;
-        private ValueType value;
 
-        OptionalFlagWithDefaultValue(String shortName, Optional<String> longName,
-                                     String description, ValueType defaultValue, Function<String, ValueType> converter) {
+        OptionalFlagWithDefaultValue(Optional<String> shortName, Optional<String> longName, String description,
+                                     boolean lazyConversion, ValueType defaultValue,
+                                     Function<String, ValueType> converter) {
             super(shortName, longName, description);
             this.converter = converter;
+            this.lazyConversion = lazyConversion;
             this.defaultValue = defaultValue;
-            this.value = defaultValue;
         }
 
-        void setRawValue(String value) {
-            this.value = converter.apply(value);
+        @Override
+        ValueType convertRawValue(String rawValue) {
+            return converter.apply(rawValue);
+        }
+
+        Function<String, ValueType> getConverter() {
+            return converter;
         }
 
-        public ValueType getValue() {
-            assertParsed();
-            return value;
+        @Override
+        boolean convertsLazily() {
+            return lazyConversion;
         }
 
         @Override
@@ -125,15 +145,129 @@ public abstract class Flag {
         }
     }
 
+    // A flag that may appear any number of times, collecting every value in order. With a separator every value
+    // is split as well, so "--tag=a,b --tag c" gives a, b and c.
+    public static class RepeatableFlag<ValueType> extends Flag implements RequiresValue<ValueType> {
+        private final Function<String, ValueType> converter;
+        private final Optional<Character> separator;
+
+        RepeatableFlag(Optional<String> shortName, Optional<String> longName, String description,
+                       Optional<Character> separator, Function<String, ValueType> converter) {
+            super(shortName, longName, description);
+            this.converter = converter;
+            this.separator = separator;
+        }
+
+        @Override
+        ValueType convertRawValue(String rawValue) {
+            return converter.apply(rawValue);
+        }
+
+        Function<String, ValueType> getConverter() {
+            return converter;
+        }
+
+        public Optional<Character> getSeparator() {
+            return separator;
+        }
+    }
+
     public static class OptionalFlagWithoutValue extends Flag {
-        OptionalFlagWithoutValue(String shortName, Optional<String> longName, String description) {
+        OptionalFlagWithoutValue(Optional<String> shortName, Optional<String> longName, String description) {
+            super(shortName, longName, description);
+        }
+    }
+
+    // Flags with a primitive value. Parsed values and defaults travel as raw long bits so that neither parsing
+    // nor reading them boxes.
+    abstract static class PrimitiveFlag<ValueType> extends Flag implements RequiresValue<ValueType>,
+            HasDefaultValue<ValueType> {
+        PrimitiveFlag(Optional<String> shortName, Optional<String> longName, String description) {
+            super(shortName, longName, description);
+        }
+
+        abstract long parseBits(String rawValue);
+
+        abstract long defaultBits();
+
+        long convertBits(String rawValue) {
+            try {
+                return parseBits(rawValue);
+            } catch (RuntimeException e) {
+                throw invalidValue(rawValue, e);
+            }
+        }
+    }
+
+    public static class IntFlag extends PrimitiveFlag<Integer> {
+        private final int defaultValue;
+
+        IntFlag(Optional<String> shortName, Optional<String> longName, String description, int defaultValue) {
+            super(shortName, longName, description);
+            this.defaultValue = defaultValue;
+        }
+
+        @Override
+        long parseBits(String rawValue) {
+            return Integer.parseInt(rawValue);
+        }
+
+        @Override
+        long defaultBits() {
+            return defaultValue;
+        }
+
+        @Override
+        public Integer getDefaultValue() {
+            return defaultValue;
+        }
+    }
+
+    public static class LongFlag extends PrimitiveFlag<Long> {
+        private final long defaultValue;
+
+        LongFlag(Optional<String> shortName, Optional<String> longName, String description, long defaultValue) {
+            super(shortName, longName, description);
+            this.defaultValue = defaultValue;
+        }
+
+        @Override
+        long parseBits(String rawValue) {
+            return Long.parseLong(rawValue);
+        }
+
+        @Override
+        long defaultBits() {
+            return defaultValue;
+        }
+
+        @Override
+        public Long getDefaultValue() {
+            return defaultValue;
+        }
+    }
+
+    public static class DoubleFlag extends PrimitiveFlag<Double> {
+        private final double defaultValue;
+
+        DoubleFlag(Optional<String> shortName, Optional<String> longName, String description, double defaultValue) {
             super(shortName, longName, description);
+            this.defaultValue = defaultValue;
         }
 
         @Override
-        public boolean hasAppeared() {
-            assertParsed();
-            return super.hasAppeared();
+        long parseBits(String rawValue) {
+            return Double.doubleToRawLongBits(FastDoubleParser.parseDouble(rawValue));
+        }
+
+        @Override
+        long defaultBits() {
+            return Double.doubleToRawLongBits(defaultValue);
+        }
+
+        @Override
+        public Double getDefaultValue() {
+            return defaultValue;
         }
     }
 }
@@ -12,17 +12,26 @@ public abstract class FlagBuilder {
 
     private static final Pattern SHORT_NAME_PATTERN = Pattern.compile("^(-)?(?<argName>[a-zA-Z0-9])$");
     private static final Pattern LONG_NAME_PATTERN = Pattern.compile("^(--)?(?<argName>[a-zA-Z0-9_]{2,})$");
+    // The converter of a flag whose value is left a String, told apart from one set with useConverter.
+    private static final Function<String, String> NO_CONVERTER = identity();
 
-    protected final String shortName;
+    protected final Optional<String> shortName;
     protected Optional<String> longName;
     protected final String description;
+    protected boolean lazyConversion = false;
 
-    private FlagBuilder(String shortName, Optional<String> longName, String description) {
+    private FlagBuilder(Optional<String> shortName, Optional<String> longName, String description) {
         this.shortName = shortName;
         this.longName = longName;
         this.description = description;
     }
 
+    private FlagBuilder(Optional<String> shortName, Optional<String> longName, String description,
+                        boolean lazyConversion) {
+        this(shortName, longName, description);
+        this.lazyConversion = lazyConversion;
+    }
+
     public static OptionalFlagWithoutValueBuilder newBuilder(String shortName, String description) {
         Matcher matcher = SHORT_NAME_PATTERN.matcher(shortName);
         if (!matcher.matches()) {
@@ -34,7 +43,13 @@ public abstract class FlagBuilder {
             throw new IllegalArgumentException("Reserved short name: -h");
         }
 
-        return new OptionalFlagWithoutValueBuilder(shortName, description, Optional.empty());
+        return new OptionalFlagWithoutValueBuilder(Optional.of(shortName), description, Optional.empty());
+    }
+
+    public static OptionalFlagWithoutValueBuilder newLongNameBuilder(String longName, String description) {
+        var builder = new OptionalFlagWithoutValueBuilder(Optional.empty(), description, Optional.empty());
+        builder.setLongName(longName);
+        return builder;
     }
 
     protected void setLongName(String longName) {
@@ -53,12 +68,12 @@ public abstract class FlagBuilder {
 
     public static class OptionalFlagWithoutValueBuilder extends FlagBuilder {
 
-        private OptionalFlagWithoutValueBuilder(String shortName, String description, Optional<String> longName) {
+        private OptionalFlagWithoutValueBuilder(Optional<String> shortName, String description, Optional<String> longName) {
             super(shortName, longName, description);
         }
 
         public OptionalFlagWithValueBuilder<String> requireValue() {
-            return new OptionalFlagWithValueBuilder<>(shortName, longName, description, identity());
+            return new OptionalFlagWithValueBuilder<>(shortName, longName, description, false, NO_CONVERTER);
         }
 
         public Flag.OptionalFlagWithoutValue build() {
@@ -74,22 +89,23 @@ public abstract class FlagBuilder {
     public static class OptionalFlagWithValueBuilder<ValueType> extends FlagBuilder {
         private final Function<String, ValueType> converter;
 
-        private OptionalFlagWithValueBuilder(String shortName, Optional<String> longName, String description,
-                                             Function<String, ValueType> converter) {
-            super(shortName, longName, description);
+        private OptionalFlagWithValueBuilder(Optional<String> shortName, Optional<String> longName, String description,
+                                             boolean lazyConversion, Function<String, ValueType> converter) {
+            super(shortName, longName, description, lazyConversion);
             this.converter = converter;
         }
 
         public  Flag.OptionalFlagWithValue<ValueType> build() {
-            return new Flag.OptionalFlagWithValue<>(shortName, longName, description, converter);
+            return new Flag.OptionalFlagWithValue<>(shortName, longName, description, lazyConversion, converter);
         }
 
         public OptionalFlagWithDefaultValueBuilder<ValueType> useDefaultValue(ValueType defaultValue) {
-            return new OptionalFlagWithDefaultValueBuilder<>(shortName, longName, description, defaultValue, converter);
+            return new OptionalFlagWithDefaultValueBuilder<>(shortName, longName, description, lazyConversion,
+                    defaultValue, converter);
         }
 
         public RequiredFlagWithValueBuilder<ValueType> mustAppear() {
-            return new RequiredFlagWithValueBuilder<>(shortName, longName, description, converter);
+            return new RequiredFlagWithValueBuilder<>(shortName, longName, description, lazyConversion, converter);
         }
 
         public OptionalFlagWithValueBuilder<ValueType> useLongName(String longName) {
@@ -97,9 +113,48 @@ public abstract class FlagBuilder {
             return this;
         }
 
+        public OptionalFlagWithValueBuilder<ValueType> convertLazily() {
+            lazyConversion = true;
+            return this;
+        }
+
         public <NewValueType> OptionalFlagWithValueBuilder<NewValueType> useConverter(
                 Function<String, NewValueType> converter) {
-            return new OptionalFlagWithValueBuilder<>(shortName, longName, description, converter);
+            return new OptionalFlagWithValueBuilder<>(shortName, longName, description, lazyConversion, converter);
+        }
+
+        // Repeated values are all converted while parsing, so a repeatable flag cannot convert lazily.
+        public RepeatableFlagBuilder<ValueType> repeatable() {
+            if (lazyConversion) {
+                throw new IllegalStateException("Repeatable flags cannot convert lazily.");
+            }
+            return new RepeatableFlagBuilder<>(shortName, longName, description, Optional.empty(), converter);
+        }
+
+        // Primitive values have a converter of their own and are never converted lazily, so these are only
+        // available before useConverter and convertLazily.
+        public IntFlagBuilder useIntValue(int defaultValue) {
+            checkPrimitive();
+            return new IntFlagBuilder(shortName, longName, description, defaultValue);
+        }
+
+        public LongFlagBuilder useLongValue(long defaultValue) {
+            checkPrimitive();
+            return new LongFlagBuilder(shortName, longName, description, defaultValue);
+        }
+
+        public DoubleFlagBuilder useDoubleValue(double defaultValue) {
+            checkPrimitive();
+            return new DoubleFlagBuilder(shortName, longName, description, defaultValue);
+        }
+
+        private void checkPrimitive() {
+            if (converter != NO_CONVERTER) {
+                throw new IllegalStateException("Primitive values cannot use a converter.");
+            }
+            if (lazyConversion) {
+                throw new IllegalStateException("Primitive values cannot be converted lazily.");
+            }
         }
     }
 
@@ -107,16 +162,17 @@ public abstract class FlagBuilder {
         private final ValueType defaultValue;
         private final Function<String, ValueType> converter;
 
-        private OptionalFlagWithDefaultValueBuilder(String shortName, Optional<String> longName,
-                                                    String description, ValueType defaultValue,
+        private OptionalFlagWithDefaultValueBuilder(Optional<String> shortName, Optional<String> longName,
+                                                    String description, boolean lazyConversion, ValueType defaultValue,
                                                     Function<String, ValueType> converter) {
-            super(shortName, longName, description);
+            super(shortName, longName, description, lazyConversion);
             this.defaultValue = defaultValue;
             this.converter = converter;
         }
 
         public Flag.OptionalFlagWithDefaultValue<ValueType> build() {
-            return new Flag.OptionalFlagWithDefaultValue<>(shortName, longName, description, defaultValue, converter);
+            return new Flag.OptionalFlagWithDefaultValue<>(shortName, longName, description, lazyConversion,
+                    defaultValue, converter);
         }
 
         public OptionalFlagWithDefaultValueBuilder<ValueType> useLongName(String longName) {
@@ -124,9 +180,15 @@ public abstract class FlagBuilder {
             return this;
         }
 
+        public OptionalFlagWithDefaultValueBuilder<ValueType> convertLazily() {
+            lazyConversion = true;
+            return this;
+        }
+
         public <NewValueType> OptionalFlagWithDefaultValueBuilder<NewValueType> useConverterWithDefaultValue(
                 NewValueType newDefaultValue, Function<String, NewValueType> converter) {
-            return new OptionalFlagWithDefaultValueBuilder<>(shortName, longName, description, newDefaultValue, converter);
+            return new OptionalFlagWithDefaultValueBuilder<>(shortName, longName, description, lazyConversion,
+                    newDefaultValue, converter);
 
         }
 
@@ -136,14 +198,14 @@ public abstract class FlagBuilder {
 
         private final Function<String, ValueType> converter;
 
-        private RequiredFlagWithValueBuilder(String shortName, Optional<String> longName, String description,
-                                             Function<String, ValueType> converter) {
-            super(shortName, longName, description);
+        private RequiredFlagWithValueBuilder(Optional<String> shortName, Optional<String> longName, String description,
+                                             boolean lazyConversion, Function<String, ValueType> converter) {
+            super(shortName, longName, description, lazyConversion);
             this.converter = converter;
         }
 
         public Flag.RequiredFlagWithValue<ValueType> build() {
-            return new Flag.RequiredFlagWithValue<>(shortName, longName, description, converter);
+            return new Flag.RequiredFlagWithValue<>(shortName, longName, description, lazyConversion, converter);
         }
 
         public RequiredFlagWithValueBuilder<ValueType> useLongName(String longName) {
@@ -151,11 +213,108 @@ public abstract class FlagBuilder {
             return this;
         }
 
+        public RequiredFlagWithValueBuilder<ValueType> convertLazily() {
+            lazyConversion = true;
+            return this;
+        }
+
         public <NewValueType> RequiredFlagWithValueBuilder<NewValueType> useConverter(
                 Function<String, NewValueType> converter) {
-            return new RequiredFlagWithValueBuilder<>(shortName, longName, description, converter);
+            return new RequiredFlagWithValueBuilder<>(shortName, longName, description, lazyConversion, converter);
+        }
+
+    }
+
+    public static class RepeatableFlagBuilder<ValueType> extends FlagBuilder {
+        private final Optional<Character> separator;
+        private final Function<String, ValueType> converter;
+
+        private RepeatableFlagBuilder(Optional<String> shortName, Optional<String> longName, String description,
+                                      Optional<Character> separator, Function<String, ValueType> converter) {
+            super(shortName, longName, description);
+            this.separator = separator;
+            this.converter = converter;
+        }
+
+        public Flag.RepeatableFlag<ValueType> build() {
+            return new Flag.RepeatableFlag<>(shortName, longName, description, separator, converter);
+        }
+
+        public RepeatableFlagBuilder<ValueType> useLongName(String longName) {
+            setLongName(longName);
+            return this;
+        }
+
+        // Splits every value on the separator, which cannot be a character of flag names.
+        public RepeatableFlagBuilder<ValueType> splitOn(char separator) {
+            if (separator == RepeatedValues.NO_SEPARATOR || Character.isLetterOrDigit(separator) || separator == '_'
+                    || separator == '-') {
+                throw new IllegalArgumentException("Invalid separator: " + separator);
+            }
+            return new RepeatableFlagBuilder<>(shortName, longName, description, Optional.of(separator), converter);
+        }
+
+        public <NewValueType> RepeatableFlagBuilder<NewValueType> useConverter(
+                Function<String, NewValueType> converter) {
+            return new RepeatableFlagBuilder<>(shortName, longName, description, separator, converter);
+        }
+    }
+
+    public static class IntFlagBuilder extends FlagBuilder {
+        private final int defaultValue;
+
+        private IntFlagBuilder(Optional<String> shortName, Optional<String> longName, String description,
+                               int defaultValue) {
+            super(shortName, longName, description);
+            this.defaultValue = defaultValue;
+        }
+
+        public Flag.IntFlag build() {
+            return new Flag.IntFlag(shortName, longName, description, defaultValue);
+        }
+
+        public IntFlagBuilder useLongName(String longName) {
+            setLongName(longName);
+            return this;
+        }
+    }
+
+    public static class LongFlagBuilder extends FlagBuilder {
+        private final long defaultValue;
+
+        private LongFlagBuilder(Optional<String> shortName, Optional<String> longName, String description,
+                                long defaultValue) {
+            super(shortName, longName, description);
+            this.defaultValue = defaultValue;
+        }
+
+        public Flag.LongFlag build() {
+            return new Flag.LongFlag(shortName, longName, description, defaultValue);
+        }
+
+        public LongFlagBuilder useLongName(String longName) {
+            setLongName(longName);
+            return this;
+        }
+    }
+
+    public static class DoubleFlagBuilder extends FlagBuilder {
+        private final double defaultValue;
+
+        private DoubleFlagBuilder(Optional<String> shortName, Optional<String> longName, String description,
+                                  double defaultValue) {
+            super(shortName, longName, description);
+            this.defaultValue = defaultValue;
         }
 
+        public Flag.DoubleFlag build() {
+            return new Flag.DoubleFlag(shortName, longName, description, defaultValue);
+        }
+
+        public DoubleFlagBuilder useLongName(String longName) {
+            setLongName(longName);
+            return this;
+        }
     }
 
 }
@@ -0,0 +1,141 @@
+package org.example.argumentparser;
+
+import java.util.*;
+import java.util.function.ToIntFunction;
+
+// Rules on which flags may appear together, compiled against the flag ordinals of one parser. Every rule is a
+// group of flags with a lower and upper bound on how many of them appear, optionally only in force when a
+// trigger flag appears (a dependency is a group whose flags must all appear). A group is kept as the words of
+// its bitmask that are not zero, so checking all the rules is a single pass over those words and costs the
+// same whether a rule names two flags out of ten or out of ten thousand.
+final class FlagConstraints {
+
+    private static final int NO_TRIGGER = -1;
+
+    private final Rule[] rules;
+    private final int[] triggers;
+    private final int[] minimums;
+    private final int[] maximums;
+    private final int[] ruleStarts;
+    private final int[] wordIndices;
+    private final long[] wordMasks;
+
+    FlagConstraints(List<Rule> rules, ToIntFunction<Flag> ordinalOf) {
+        this.rules = rules.toArray(new Rule[0]);
+        this.triggers = new int[this.rules.length];
+        this.minimums = new int[this.rules.length];
+        this.maximums = new int[this.rules.length];
+        this.ruleStarts = new int[this.rules.length + 1];
+
+        var words = new TreeMap<Integer, Long>();
+        var wordIndices = new int[16];
+        var wordMasks = new long[16];
+        int wordCount = 0;
+        for (int rule = 0; rule < this.rules.length; rule++) {
+            var spec = this.rules[rule];
+            triggers[rule] = spec.trigger != null ? ordinalOf.applyAsInt(spec.trigger) : NO_TRIGGER;
+            minimums[rule] = spec.minimum;
+            maximums[rule] = spec.maximum;
+
+            words.clear();
+            for (Flag flag : spec.flags) {
+                int ordinal = ordinalOf.applyAsInt(flag);
+                words.merge(ordinal >>> 6, 1L << ordinal, (a, b) -> a | b);
+            }
+            ruleStarts[rule] = wordCount;
+            for (var word : words.entrySet()) {
+                if (wordCount == wordIndices.length) {
+                    wordIndices = Arrays.copyOf(wordIndices, wordCount * 2);
+                    wordMasks = Arrays.copyOf(wordMasks, wordCount * 2);
+                }
+                wordIndices[wordCount] = word.getKey();
+                wordMasks[wordCount++] = word.getValue();
+            }
+        }
+        ruleStarts[this.rules.length] = wordCount;
+        this.wordIndices = Arrays.copyOf(wordIndices, wordCount);
+        this.wordMasks = Arrays.copyOf(wordMasks, wordCount);
+    }
+
+    boolean isEmpty() {
+        return rules.length == 0;
+    }
+
+    // Adds the message of every rule the appeared flags break, in the order the rules were added, to violations,
+    // which is only created for the first of them, and returns it.
+    List<String> collectViolations(long[] appeared, List<String> violations) {
+        for (int rule = 0; rule < triggers.length; rule++) {
+            int trigger = triggers[rule];
+            if (trigger != NO_TRIGGER && (appeared[trigger >>> 6] & (1L << trigger)) == 0) {
+                continue;
+            }
+            int count = 0;
+            for (int i = ruleStarts[rule]; i < ruleStarts[rule + 1]; i++) {
+                count += Long.bitCount(appeared[wordIndices[i]] & wordMasks[i]);
+            }
+            if (count < minimums[rule] || count > maximums[rule]) {
+                if (violations == null) {
+                    violations = new ArrayList<>();
+                }
+                violations.add(rules[rule].violation(count));
+            }
+        }
+        return violations;
+    }
+
+    // A rule as it is added to the builder, before the flags have ordinals.
+    static final class Rule {
+        private final Flag trigger;
+        private final Flag[] flags;
+        private final int minimum;
+        private final int maximum;
+
+        private Rule(Flag trigger, Flag[] flags, int minimum, int maximum) {
+            this.trigger = trigger;
+            this.flags = flags;
+            this.minimum = minimum;
+            this.maximum = maximum;
+        }
+
+        static Rule count(Flag[] flags, int minimum, int maximum) {
+            if (flags.length < 2) {
+                throw new IllegalArgumentException("A flag group needs at least two flags.");
+            }
+            if (minimum < 0 || maximum < minimum) {
+                throw new IllegalArgumentException("Invalid flag count limits: " + minimum + " to " + maximum);
+            }
+            return new Rule(null, distinct(flags), minimum, maximum);
+        }
+
+        static Rule dependency(Flag flag, Flag[] requiredFlags) {
+            if (requiredFlags.length == 0) {
+                throw new IllegalArgumentException("A flag dependency needs at least one required flag.");
+            }
+            var distinctFlags = distinct(requiredFlags);
+            return new Rule(flag, distinctFlags, distinctFlags.length, distinctFlags.length);
+        }
+
+        private static Flag[] distinct(Flag[] flags) {
+            var distinct = Collections.newSetFromMap(new IdentityHashMap<Flag, Boolean>());
+            distinct.addAll(Arrays.asList(flags));
+            if (distinct.size() != flags.length) {
+                throw new IllegalArgumentException("A flag is named more than once in the same rule.");
+            }
+            return flags.clone();
+        }
+
+        private String violation(int count) {
+            var names = new StringJoiner(", ");
+            for (Flag flag : flags) {
+                names.add(flag.getName());
+            }
+            if (trigger != null) {
+                return "Flag " + trigger.getName() + " requires flags: " + names;
+            }
+            if (count < minimum) {
+                return "At least " + minimum + " of these flags must appear: " + names;
+            }
+            return "At most " + maximum + " of these flags may appear: " + names;
+        }
+    }
+}
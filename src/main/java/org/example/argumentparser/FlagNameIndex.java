@@ -0,0 +1,103 @@
+package org.example.argumentparser;
+
+import java.util.Arrays;
+
+// Frozen name -> ordinal lookup built once per parser. Long names live back to back in a single char
+// array and are found through an open-addressing table, so a lookup hashes and compares the token in
+// place and never allocates.
+final class FlagNameIndex {
+
+    static final int NOT_FOUND = -1;
+
+    private final int[] shortNameOrdinals = new int[128];
+
+    private final char[] longNameChars;
+    private final int[] longNameOffsets;
+    private final int[] longNameOrdinals;
+    private final int[] slots;
+    private final int mask;
+
+    FlagNameIndex(Flag[] flags) {
+        Arrays.fill(shortNameOrdinals, NOT_FOUND);
+
+        int longNameCount = 0;
+        int longNameLength = 0;
+        for (Flag flag : flags) {
+            if (flag.getLongName().isPresent()) {
+                longNameCount++;
+                longNameLength += flag.getLongName().get().length();
+            }
+        }
+
+        longNameChars = new char[longNameLength];
+        longNameOffsets = new int[longNameCount + 1];
+        longNameOrdinals = new int[longNameCount];
+        slots = new int[Integer.highestOneBit(Math.max(2, longNameCount * 2) - 1) << 1];
+        mask = slots.length - 1;
+
+        int entry = 0;
+        for (int ordinal = 0; ordinal < flags.length; ordinal++) {
+            var flag = flags[ordinal];
+            if (flag.getOptionalShortName().isPresent()) {
+                shortNameOrdinals[flag.getOptionalShortName().get().charAt(0)] = ordinal;
+            }
+            if (flag.getLongName().isPresent()) {
+                var longName = flag.getLongName().get();
+                int offset = longNameOffsets[entry];
+                longName.getChars(0, longName.length(), longNameChars, offset);
+                longNameOffsets[entry + 1] = offset + longName.length();
+                longNameOrdinals[entry] = ordinal;
+
+                int slot = hash(longName, 0, longName.length()) & mask;
+                while (slots[slot] != 0) {
+                    slot = (slot + 1) & mask;
+                }
+                slots[slot] = entry + 1;
+                entry++;
+            }
+        }
+    }
+
+    int lookupShortName(char name) {
+        return name < shortNameOrdinals.length ? shortNameOrdinals[name] : NOT_FOUND;
+    }
+
+    // Looks up the long name spelled by token[start, token.length()).
+    int lookupLongName(CharSequence token, int start) {
+        int end = token.length();
+        int slot = hash(token, start, end) & mask;
+        while (true) {
+            int entry = slots[slot] - 1;
+            if (entry < 0) {
+                return NOT_FOUND;
+            }
+            if (matches(entry, token, start, end)) {
+                return longNameOrdinals[entry];
+            }
+            slot = (slot + 1) & mask;
+        }
+    }
+
+    private boolean matches(int entry, CharSequence token, int start, int end) {
+        int offset = longNameOffsets[entry];
+        if (longNameOffsets[entry + 1] - offset != end - start) {
+            return false;
+        }
+        for (int i = start; i < end; i++) {
+            if (longNameChars[offset++] != token.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static int hash(CharSequence chars, int start, int end) {
+        int h = 0;
+        for (int i = start; i < end; i++) {
+            h = 31 * h + chars.charAt(i);
+        }
+        h ^= h >>> 16;
+        h *= 0x85ebca6b;
+        return h ^ (h >>> 13);
+    }
+}
@@ -0,0 +1,104 @@
+package org.example.argumentparser;
+
+import java.util.Arrays;
+import java.util.StringJoiner;
+
+// Runtime support for the parsers that ParserProcessor generates, so that they accept the same command lines
+// as ArgumentParser and fail with the same messages. Not meant to be called directly.
+public final class GeneratedParsers {
+
+    private GeneratedParsers() {
+    }
+
+    public static boolean isHelp(String arg) {
+        return ArgumentParser.isHelp(arg);
+    }
+
+    public static boolean isFlagName(String arg) {
+        return ArgumentParser.isFlagName(arg);
+    }
+
+    // Generated parsers have few enough names to index them only once a flag is unknown.
+    public static IllegalArgumentException unknownFlag(String arg, String[] longNames) {
+        return new NameSuggestions(Arrays.asList(longNames)).unknownFlag(arg);
+    }
+
+    public static IllegalArgumentException unrecognizedPositional(String arg) {
+        return new IllegalArgumentException("Unrecognized positional argument with value: " + arg);
+    }
+
+    public static IllegalArgumentException missingValue(String arg) {
+        return new IllegalArgumentException("No flag value found for flag: " + ArgumentParser.flagName(arg));
+    }
+
+    // Throws for every missing positional argument and required flag at once, one kind per line, as
+    // ArgumentParser does.
+    public static void checkComplete(int positionalCount, String[] positionalNames, boolean[] appeared,
+                                     int[] requiredOrdinals, String[] requiredNames) {
+        String positionals = null;
+        if (positionalCount < positionalNames.length) {
+            var names = new StringJoiner(", ");
+            for (int i = positionalCount; i < positionalNames.length; i++) {
+                names.add(positionalNames[i]);
+            }
+            positionals = ArgumentParser.missing("positional argument", positionalNames.length - positionalCount,
+                    names);
+        }
+        StringJoiner flags = null;
+        int missingCount = 0;
+        for (int i = 0; i < requiredOrdinals.length; i++) {
+            if (!appeared[requiredOrdinals[i]]) {
+                if (flags == null) {
+                    flags = new StringJoiner(", ");
+                }
+                flags.add(requiredNames[i]);
+                missingCount++;
+            }
+        }
+        if (positionals == null && flags == null) {
+            return;
+        }
+        var message = new StringJoiner("\n");
+        if (positionals != null) {
+            message.add(positionals);
+        }
+        if (flags != null) {
+            message.add(ArgumentParser.missing("required flag", missingCount, flags));
+        }
+        throw new IllegalStateException(message.toString());
+    }
+
+    public static int toInt(String flagName, String rawValue) {
+        try {
+            return Integer.parseInt(rawValue);
+        } catch (RuntimeException e) {
+            throw invalidValue(flagName, rawValue, e);
+        }
+    }
+
+    public static long toLong(String flagName, String rawValue) {
+        try {
+            return Long.parseLong(rawValue);
+        } catch (RuntimeException e) {
+            throw invalidValue(flagName, rawValue, e);
+        }
+    }
+
+    public static double toDouble(String flagName, String rawValue) {
+        try {
+            return FastDoubleParser.parseDouble(rawValue);
+        } catch (RuntimeException e) {
+            throw invalidValue(flagName, rawValue, e);
+        }
+    }
+
+    public static void printHelpAndExit(String usage) {
+        System.out.print(usage);
+        System.out.println();
+        System.exit(0);
+    }
+
+    private static IllegalArgumentException invalidValue(String flagName, String rawValue, RuntimeException cause) {
+        return new IllegalArgumentException("Invalid value for flag " + flagName + ": " + rawValue, cause);
+    }
+}
@@ -0,0 +1,38 @@
+package org.example.argumentparser;
+
+// Holds the raw value of a lazily converted flag. The converter runs on the first get(); its result, or its
+// failure, is kept so that every later and concurrent get() sees the same outcome without converting again.
+final class LazyValue {
+
+    private final ArgumentParser parser;
+    private final Flag flag;
+    private final String rawValue;
+    private volatile boolean converted = false;
+    private Object value;
+    private RuntimeException failure;
+
+    LazyValue(ArgumentParser parser, Flag flag, String rawValue) {
+        this.parser = parser;
+        this.flag = flag;
+        this.rawValue = rawValue;
+    }
+
+    Object get() {
+        if (!converted) {
+            synchronized (this) {
+                if (!converted) {
+                    try {
+                        value = parser.convert(flag, rawValue);
+                    } catch (RuntimeException e) {
+                        failure = e;
+                    }
+                    converted = true;
+                }
+            }
+        }
+        if (failure != null) {
+            throw failure;
+        }
+        return value;
+    }
+}
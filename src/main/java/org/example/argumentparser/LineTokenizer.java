@@ -0,0 +1,55 @@
+package org.example.argumentparser;
+
+import java.util.ArrayList;
+
+// Splits a command line given as one line of text into arguments, with the quoting rules of response files:
+// arguments are separated by whitespace, single and double quotes group, a backslash escapes the next character
+// inside double quotes, and a '#' starting an argument comments out the rest of the line.
+final class LineTokenizer {
+
+    static final int NO_TOKEN = -1;
+
+    private LineTokenizer() {
+    }
+
+    static String[] split(String line) {
+        var arguments = new ArrayList<String>();
+        var argument = new StringBuilder();
+        for (int end = next(line, 0, argument); end != NO_TOKEN; end = next(line, end, argument)) {
+            arguments.add(argument.toString());
+        }
+        return arguments.toArray(new String[0]);
+    }
+
+    // Reads the first argument at or after from into argument and returns the offset just past it, or NO_TOKEN
+    // if the rest of the line holds none.
+    static int next(String line, int from, StringBuilder argument) {
+        int i = from;
+        int length = line.length();
+        while (i < length && ResponseFileTokenizer.isWhitespace(line.charAt(i))) {
+            i++;
+        }
+        if (i == length || line.charAt(i) == '#') {
+            return NO_TOKEN;
+        }
+        argument.setLength(0);
+        while (i < length && !ResponseFileTokenizer.isWhitespace(line.charAt(i))) {
+            char c = line.charAt(i++);
+            if (c == '\'' || c == '"') {
+                while (i < length && line.charAt(i) != c) {
+                    if (c == '"' && line.charAt(i) == '\\' && i + 1 < length) {
+                        i++;
+                    }
+                    argument.append(line.charAt(i++));
+                }
+                if (i == length) {
+                    throw new IllegalArgumentException("Unterminated quote in command line: " + line);
+                }
+                i++;
+            } else {
+                argument.append(c);
+            }
+        }
+        return i;
+    }
+}
@@ -0,0 +1,127 @@
+package org.example.argumentparser;
+
+import java.util.*;
+
+// The long names closest to a mistyped one, by Levenshtein distance. The names are kept in a BK-tree: every
+// child edge is labelled with the distance from the parent, so by the triangle inequality a query within
+// distance d only descends into the children whose label is within d of the query's distance to the parent,
+// and with thousands of names a typo is compared against a small fraction of them. The tree lives in flat
+// arrays, with each node's children chained through nextSibling.
+final class NameSuggestions {
+
+    private static final int NONE = -1;
+    private static final int MAX_SUGGESTIONS = 3;
+
+    private final String[] names;
+    private final int[] edgeDistances;
+    private final int[] firstChild;
+    private final int[] nextSibling;
+
+    NameSuggestions(Collection<String> names) {
+        this.names = new String[names.size()];
+        this.edgeDistances = new int[this.names.length];
+        this.firstChild = new int[this.names.length];
+        this.nextSibling = new int[this.names.length];
+        Arrays.fill(firstChild, NONE);
+        Arrays.fill(nextSibling, NONE);
+        int count = 0;
+        for (String name : names) {
+            this.names[count] = name;
+            if (count > 0) {
+                insert(count);
+            }
+            count++;
+        }
+    }
+
+    private void insert(int node) {
+        var name = names[node];
+        int parent = 0;
+        while (true) {
+            int distance = distance(name, names[parent]);
+            int child = firstChild[parent];
+            while (child != NONE && edgeDistances[child] != distance) {
+                child = nextSibling[child];
+            }
+            if (child == NONE) {
+                edgeDistances[node] = distance;
+                nextSibling[node] = firstChild[parent];
+                firstChild[parent] = node;
+                return;
+            }
+            parent = child;
+        }
+    }
+
+    // The error for a well-formed but unknown "-x" or "--long_name", suggesting the closest long names for the latter.
+    IllegalArgumentException unknownFlag(CharSequence arg) {
+        var name = ArgumentParser.flagName(arg);
+        if (arg.length() == 2) {
+            return new IllegalArgumentException("Invalid short name encountered: " + name);
+        }
+        var message = "Invalid long name encountered: " + name;
+        var suggestions = closest(name, maxTypoDistance(name), MAX_SUGGESTIONS);
+        if (!suggestions.isEmpty()) {
+            message += ". Did you mean --" + String.join(", --", suggestions) + "?";
+        }
+        return new IllegalArgumentException(message);
+    }
+
+    // A third of the name's length, so that short names are not matched with anything of the same length.
+    static int maxTypoDistance(String name) {
+        return Math.max(1, Math.min(3, name.length() / 3));
+    }
+
+    // Up to limit names within maxDistance of name, closest first and in name order among equally close ones.
+    List<String> closest(String name, int maxDistance, int limit) {
+        if (names.length == 0 || limit <= 0) {
+            return List.of();
+        }
+        var matches = new ArrayList<int[]>();
+        var pending = new int[16];
+        int pendingCount = 0;
+        pending[pendingCount++] = 0;
+        while (pendingCount > 0) {
+            int node = pending[--pendingCount];
+            int distance = distance(name, names[node]);
+            if (distance <= maxDistance) {
+                matches.add(new int[]{distance, node});
+            }
+            for (int child = firstChild[node]; child != NONE; child = nextSibling[child]) {
+                if (Math.abs(edgeDistances[child] - distance) <= maxDistance) {
+                    if (pendingCount == pending.length) {
+                        pending = Arrays.copyOf(pending, pendingCount * 2);
+                    }
+                    pending[pendingCount++] = child;
+                }
+            }
+        }
+        matches.sort((a, b) -> a[0] != b[0] ? Integer.compare(a[0], b[0]) : names[a[1]].compareTo(names[b[1]]));
+        var closest = new ArrayList<String>(Math.min(limit, matches.size()));
+        for (int i = 0; i < matches.size() && i < limit; i++) {
+            closest.add(names[matches.get(i)[1]]);
+        }
+        return closest;
+    }
+
+    // Levenshtein distance with two rows.
+    private static int distance(String a, String b) {
+        var previous = new int[b.length() + 1];
+        var current = new int[b.length() + 1];
+        for (int j = 0; j <= b.length(); j++) {
+            previous[j] = j;
+        }
+        for (int i = 1; i <= a.length(); i++) {
+            current[0] = i;
+            char c = a.charAt(i - 1);
+            for (int j = 1; j <= b.length(); j++) {
+                int substitution = previous[j - 1] + (c == b.charAt(j - 1) ? 0 : 1);
+                current[j] = Math.min(substitution, Math.min(previous[j], current[j - 1]) + 1);
+            }
+            var swap = previous;
+            previous = current;
+            current = swap;
+        }
+        return previous[b.length()];
+    }
+}
@@ -0,0 +1,46 @@
+package org.example.argumentparser;
+
+import java.io.*;
+import java.net.StandardProtocolFamily;
+import java.net.UnixDomainSocketAddress;
+import java.nio.channels.Channels;
+import java.nio.channels.SocketChannel;
+import java.nio.file.Path;
+import java.util.Arrays;
+
+// Forwards a command line to a ParseDaemon and relays its reply. Run as
+// "java org.example.argumentparser.ParseClient <socket> [arguments...]"; it exits with the daemon's status.
+// This is a JVM of its own, so it still pays for JVM startup: what the daemon saves is building the parser and
+// warming up the command. A client that starts in a few milliseconds has to be native, speaking DaemonProtocol.
+public final class ParseClient {
+
+    private ParseClient() {
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length == 0) {
+            System.err.println("USAGE: ParseClient <socket> [arguments...]");
+            System.exit(DaemonProtocol.EXIT_USAGE);
+        }
+        var rest = Arrays.copyOfRange(args, 1, args.length);
+        int status = run(Path.of(args[0]), rest, ArgumentParser.terminalWidth(), System.out, System.err);
+        System.out.flush();
+        System.exit(status);
+    }
+
+    // Returns the exit status of the command line, after appending its output to out and err.
+    public static int run(Path socketPath, String[] args, int width, Appendable out, Appendable err)
+            throws IOException {
+        try (var channel = SocketChannel.open(StandardProtocolFamily.UNIX)) {
+            channel.connect(UnixDomainSocketAddress.of(socketPath));
+            var request = new DataOutputStream(new BufferedOutputStream(Channels.newOutputStream(channel)));
+            DaemonProtocol.writeRequest(request, width, args);
+
+            var reply = new DataInputStream(new BufferedInputStream(Channels.newInputStream(channel)));
+            int status = reply.readInt();
+            out.append(DaemonProtocol.readString(reply));
+            err.append(DaemonProtocol.readString(reply));
+            return status;
+        }
+    }
+}
@@ -0,0 +1,166 @@
+package org.example.argumentparser;
+
+import java.io.*;
+import java.net.StandardProtocolFamily;
+import java.net.UnixDomainSocketAddress;
+import java.nio.channels.Channels;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.util.function.Function;
+
+// Keeps a built parser, and the command behind it, warm in a long-running process. A client forwards a command
+// line over a Unix domain socket in the format of DaemonProtocol; the daemon parses it and runs the command on
+// the result, and replies with an exit status and the output, so neither printing nor System.exit happens in
+// the daemon. Asking for help replies with the usage text, and a parse error with the error followed by the
+// usage text.
+//
+// Only the command line and the terminal width are sent, so parsers that would read the client's working
+// directory, environment or standard input (response files, environment variables, a relative config file or
+// a variadic positional argument) are rejected.
+public final class ParseDaemon implements Closeable {
+
+    private final Path socketPath;
+    private final Object socketKey;
+    private final ServerSocketChannel server;
+    private final ArgumentParser parser;
+    private final Function<ParseResult, String> command;
+
+    private ParseDaemon(Path socketPath, Object socketKey, ServerSocketChannel server, ArgumentParser parser,
+                        Function<ParseResult, String> command) {
+        this.socketPath = socketPath;
+        this.socketKey = socketKey;
+        this.server = server;
+        this.parser = parser;
+        this.command = command;
+    }
+
+    // Only the owner of the daemon may connect to the socket. A socket left behind at socketPath by a daemon
+    // that did not shut down cleanly is replaced; anything else there, or a daemon still listening, is an error.
+    public static ParseDaemon bind(Path socketPath, ArgumentParser parser, Function<ParseResult, String> command)
+            throws IOException {
+        var limitation = parser.daemonLimitation();
+        if (limitation.isPresent()) {
+            throw new IllegalArgumentException("Parsers with " + limitation.get() + " cannot run in a daemon.");
+        }
+        checkReplaceable(socketPath);
+        // Bound in a directory only the owner can enter and restricted before it is moved into place, so there
+        // is no moment at which others can connect.
+        var staging = Files.createTempDirectory(socketPath.toAbsolutePath().getParent(), ".parse-daemon",
+                PosixFilePermissions.asFileAttribute(PosixFilePermissions.fromString("rwx------")));
+        var stagedPath = staging.resolve("socket");
+        var server = ServerSocketChannel.open(StandardProtocolFamily.UNIX);
+        try {
+            server.bind(UnixDomainSocketAddress.of(stagedPath));
+            Files.setPosixFilePermissions(stagedPath, PosixFilePermissions.fromString("rw-------"));
+            checkReplaceable(socketPath);
+            Files.move(stagedPath, socketPath, StandardCopyOption.ATOMIC_MOVE);
+            var socketKey = Files.readAttributes(socketPath, BasicFileAttributes.class, LinkOption.NOFOLLOW_LINKS)
+                    .fileKey();
+            return new ParseDaemon(socketPath, socketKey, server, parser, command);
+        } catch (IOException | RuntimeException e) {
+            server.close();
+            Files.deleteIfExists(stagedPath);
+            throw e;
+        } finally {
+            Files.delete(staging);
+        }
+    }
+
+    private static void checkReplaceable(Path socketPath) throws IOException {
+        BasicFileAttributes attributes;
+        try {
+            attributes = Files.readAttributes(socketPath, BasicFileAttributes.class, LinkOption.NOFOLLOW_LINKS);
+        } catch (NoSuchFileException e) {
+            return;
+        }
+        // Sockets are neither regular files, directories nor symbolic links.
+        if (!attributes.isOther()) {
+            throw new FileAlreadyExistsException(socketPath.toString(), null, "not a socket");
+        }
+        try (var channel = SocketChannel.open(StandardProtocolFamily.UNIX)) {
+            channel.connect(UnixDomainSocketAddress.of(socketPath));
+        } catch (IOException e) {
+            // Nobody is listening: the socket is stale.
+            return;
+        }
+        throw new FileAlreadyExistsException(socketPath.toString(), null, "a daemon is already listening");
+    }
+
+    // Accepts connections until the daemon is closed, serving each of them on its own thread.
+    public void serve() throws IOException {
+        while (true) {
+            SocketChannel channel;
+            try {
+                channel = server.accept();
+            } catch (ClosedChannelException e) {
+                return;
+            }
+            var thread = new Thread(() -> serve(channel), "parse-daemon-connection");
+            thread.setDaemon(true);
+            thread.start();
+        }
+    }
+
+    // Removes the socket file, unless something else has replaced it since.
+    @Override
+    public void close() throws IOException {
+        server.close();
+        try {
+            var attributes = Files.readAttributes(socketPath, BasicFileAttributes.class, LinkOption.NOFOLLOW_LINKS);
+            if (attributes.isOther() && socketKey != null && socketKey.equals(attributes.fileKey())) {
+                Files.delete(socketPath);
+            }
+        } catch (NoSuchFileException e) {
+            // Already gone.
+        }
+    }
+
+    private void serve(SocketChannel channel) {
+        try (channel) {
+            var in = new DataInputStream(new BufferedInputStream(Channels.newInputStream(channel)));
+            var out = new DataOutputStream(new BufferedOutputStream(Channels.newOutputStream(channel)));
+            int width = DaemonProtocol.readWidth(in);
+            var args = DaemonProtocol.readArguments(in);
+            respond(out, width, args);
+        } catch (IOException e) {
+            // The client went away or sent a malformed request; there is nobody left to answer.
+        }
+    }
+
+    private void respond(DataOutputStream out, int width, String[] args) throws IOException {
+        ParseResult result;
+        try {
+            result = parser.parseWithoutExit(args);
+        } catch (RuntimeException e) {
+            var message = e.getMessage() != null ? e.getMessage() : e.toString();
+            var usage = new StringBuilder().append(message).append("\n\n");
+            parser.selectedParser(args).printUsage(usage, width);
+            DaemonProtocol.writeReply(out, DaemonProtocol.EXIT_USAGE, "", usage.append('\n').toString());
+            return;
+        }
+        if (result.isHelpRequested()) {
+            var usage = new StringBuilder();
+            result.getParser().printUsage(usage, width);
+            DaemonProtocol.writeReply(out, DaemonProtocol.EXIT_OK, usage.append('\n').toString(), "");
+            return;
+        }
+
+        String output;
+        try {
+            output = command.apply(result);
+        } catch (RuntimeException e) {
+            DaemonProtocol.writeReply(out, DaemonProtocol.EXIT_FAILURE, "", e + "\n");
+            return;
+        }
+        DaemonProtocol.writeReply(out, DaemonProtocol.EXIT_OK, output != null ? output : "", "");
+    }
+}
@@ -0,0 +1,48 @@
+package org.example.argumentparser;
+
+import jdk.jfr.*;
+
+// JDK Flight Recorder events for the phases of parsing. They are disabled unless a recording enables them.
+final class ParseEvents {
+
+    private ParseEvents() {
+    }
+
+    @Name("org.example.argumentparser.Parse")
+    @Label("Parse")
+    @Category("Argument Parser")
+    @Description("Parsing of one command line, from the first token to the validated result")
+    static final class Parse extends Event {
+        @Label("Program")
+        String programName;
+
+        @Label("Token Count")
+        int tokenCount;
+
+        @Label("Succeeded")
+        boolean succeeded;
+    }
+
+    @Name("org.example.argumentparser.Conversion")
+    @Label("Flag Value Conversion")
+    @Category("Argument Parser")
+    static final class Conversion extends Event {
+        @Label("Flag")
+        String flagName;
+
+        @Label("Succeeded")
+        boolean succeeded;
+    }
+
+    @Name("org.example.argumentparser.Validation")
+    @Label("Validation")
+    @Category("Argument Parser")
+    @Description("Checks of the positional arguments, required flags and flag constraints")
+    static final class Validation extends Event {
+        @Label("Program")
+        String programName;
+
+        @Label("Succeeded")
+        boolean succeeded;
+    }
+}
@@ -0,0 +1,20 @@
+package org.example.argumentparser;
+
+// Observes the phases of parsing, for metrics. The parser only measures anything when a listener other than NONE
+// is set, or when the matching JDK Flight Recorder event is enabled. Durations are in nanoseconds; the token
+// count is that of the arguments given to parse, before response files are expanded. A subcommand's parser
+// reports to its own listener, with the token count of the whole command line.
+public interface ParseListener {
+
+    ParseListener NONE = new ParseListener() {
+    };
+
+    default void parsed(int tokenCount, long durationNanos, boolean succeeded) {
+    }
+
+    default void converted(Flag flag, long durationNanos, boolean succeeded) {
+    }
+
+    default void validated(long durationNanos, boolean succeeded) {
+    }
+}
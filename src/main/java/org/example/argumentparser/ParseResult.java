@@ -0,0 +1,134 @@
+package org.example.argumentparser;
+
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Optional;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+public final class ParseResult {
+
+    private final ArgumentParser parser;
+    private final Object[] values;
+    private final long[] primitiveValues;
+    private final long[] appeared;
+    private final String[] positionalValues;
+    private final VariadicValues variadicValues;
+    private final AtomicBoolean variadicValuesTaken = new AtomicBoolean();
+    private final Optional<String> subcommand;
+    private final ParseResult subcommandResult;
+    private final boolean helpRequested;
+
+    ParseResult(ArgumentParser parser, Object[] values, long[] primitiveValues, long[] appeared,
+                String[] positionalValues, VariadicValues variadicValues, Optional<String> subcommand,
+                ParseResult subcommandResult) {
+        this(parser, values, primitiveValues, appeared, positionalValues, variadicValues, subcommand,
+                subcommandResult, false);
+    }
+
+    private ParseResult(ArgumentParser parser, Object[] values, long[] primitiveValues, long[] appeared,
+                        String[] positionalValues, VariadicValues variadicValues, Optional<String> subcommand,
+                        ParseResult subcommandResult, boolean helpRequested) {
+        this.parser = parser;
+        this.values = values;
+        this.primitiveValues = primitiveValues;
+        this.appeared = appeared;
+        this.positionalValues = positionalValues;
+        this.variadicValues = variadicValues;
+        this.subcommand = subcommand;
+        this.subcommandResult = subcommandResult;
+        this.helpRequested = helpRequested;
+    }
+
+    // Stands for a command line that asked for help rather than being parsed; parser is the one whose usage
+    // was asked for, which is a subcommand's parser for "cmd sub --help".
+    static ParseResult helpRequested(ArgumentParser parser) {
+        return new ParseResult(parser, null, null, null, null, null, Optional.empty(), null, true);
+    }
+
+    boolean isHelpRequested() {
+        return helpRequested;
+    }
+
+    ArgumentParser getParser() {
+        return parser;
+    }
+
+    @SuppressWarnings("unchecked")
+    public <ValueType> ValueType getValue(Flag.RequiredFlagWithValue<ValueType> flag) {
+        return (ValueType) value(parser.ordinalOf(flag));
+    }
+
+    @SuppressWarnings("unchecked")
+    public <ValueType> Optional<ValueType> getValue(Flag.OptionalFlagWithValue<ValueType> flag) {
+        return Optional.ofNullable((ValueType) value(parser.ordinalOf(flag)));
+    }
+
+    @SuppressWarnings("unchecked")
+    public <ValueType> ValueType getValue(Flag.OptionalFlagWithDefaultValue<ValueType> flag) {
+        return (ValueType) value(parser.ordinalOf(flag));
+    }
+
+    // Every value of the flag in the order they appeared, empty if it did not. The list is a read-only view.
+    @SuppressWarnings("unchecked")
+    public <ValueType> List<ValueType> getValues(Flag.RepeatableFlag<ValueType> flag) {
+        return (List<ValueType>) values[parser.ordinalOf(flag)];
+    }
+
+    public int getInt(Flag.IntFlag flag) {
+        return (int) primitiveValues[parser.primitiveSlotOf(flag)];
+    }
+
+    public long getLong(Flag.LongFlag flag) {
+        return primitiveValues[parser.primitiveSlotOf(flag)];
+    }
+
+    public double getDouble(Flag.DoubleFlag flag) {
+        return Double.longBitsToDouble(primitiveValues[parser.primitiveSlotOf(flag)]);
+    }
+
+    public String getValue(PositionalArgument positionalArgument) {
+        return positionalValues[parser.indexOf(positionalArgument)];
+    }
+
+    // The values are read from the command line while the iterator advances, so they can be taken only once.
+    public Iterator<String> getValues(VariadicPositionalArgument variadicPositionalArgument) {
+        parser.checkRegistered(variadicPositionalArgument);
+        if (variadicValuesTaken.getAndSet(true)) {
+            throw new IllegalStateException("Values of " + variadicPositionalArgument.getName()
+                    + " have already been taken.");
+        }
+        return variadicValues != null ? variadicValues : Collections.emptyIterator();
+    }
+
+    public Stream<String> streamValues(VariadicPositionalArgument variadicPositionalArgument) {
+        var iterator = getValues(variadicPositionalArgument);
+        var spliterator = Spliterators.spliteratorUnknownSize(iterator, Spliterator.ORDERED | Spliterator.NONNULL);
+        var stream = StreamSupport.stream(spliterator, false);
+        return variadicValues != null ? stream.onClose(variadicValues::close) : stream;
+    }
+
+    public Optional<String> getSubcommand() {
+        return subcommand;
+    }
+
+    // The result of parsing the arguments after the subcommand with the subcommand's parser.
+    public Optional<ParseResult> getSubcommandResult() {
+        return Optional.ofNullable(subcommandResult);
+    }
+
+    public boolean hasAppeared(Flag flag) {
+        int ordinal = parser.ordinalOf(flag);
+        return (appeared[ordinal >>> 6] & (1L << ordinal)) != 0;
+    }
+
+    private Object value(int ordinal) {
+        var value = values[ordinal];
+        return value instanceof LazyValue ? ((LazyValue) value).get() : value;
+    }
+
+}
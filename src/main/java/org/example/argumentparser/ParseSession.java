@@ -0,0 +1,307 @@
+package org.example.argumentparser;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+
+// Parses a command line over and over as it is being edited, e.g. on every keystroke in a REPL, for inline
+// validation. The line is split with the quoting rules of response files. Every update keeps the arguments in
+// front of the first changed character along with what scanning them did, undoes what the later arguments did
+// and scans only those again; converters only run for flags whose raw value changed since they last ran.
+// Validation is repeated in full, as it is a pass over a few bitmask words. Asking for help never exits: it is
+// reported by isHelpRequested.
+//
+// A session is not thread safe. Parsers with subcommands, a variadic positional argument or response files
+// cannot be parsed incrementally.
+public final class ParseSession {
+
+    private final ArgumentParser parser;
+    private final int flagCount;
+    private final int positionalArgumentCount;
+
+    // The state of the scan after the last kept argument.
+    private final String[] rawValues;
+    private final long[] appeared;
+    private final String[] positionalValues;
+    private final List<List<String>> repeatedRawValues = new ArrayList<>();
+    private final RepeatedValues[] repeatedValues;
+    private int positionalCount = 0;
+    private int pendingValueOrdinal = ArgumentParser.NOT_A_FLAG;
+    private boolean pendingValueUsedShortName = false;
+    private RuntimeException failure = null;
+    private int helpCount = 0;
+
+    private final List<Step> steps = new ArrayList<>();
+    private final StringBuilder argument = new StringBuilder();
+    private final ConversionMemo memo;
+    private String line = "";
+    private int rescannedCount = 0;
+    private boolean parsed = false;
+
+    private boolean helpRequested = false;
+    private ParseResult result = null;
+    private RuntimeException error = null;
+
+    ParseSession(ArgumentParser parser) {
+        this.parser = parser;
+        this.flagCount = parser.getFlags().length;
+        this.positionalArgumentCount = parser.getPositionalArguments().size();
+        this.rawValues = new String[flagCount];
+        this.appeared = new long[(flagCount + 63) >>> 6];
+        this.positionalValues = new String[positionalArgumentCount];
+        this.repeatedValues = new RepeatedValues[flagCount];
+        for (int ordinal = 0; ordinal < flagCount; ordinal++) {
+            repeatedRawValues.add(parser.isRepeatable(ordinal) ? new ArrayList<>() : null);
+        }
+        this.memo = new ConversionMemo(flagCount);
+        update("");
+    }
+
+    // Parses the edited line, and returns this session to read the outcome from.
+    public ParseSession update(String newLine) {
+        int changedAt = 0;
+        int commonLength = Math.min(line.length(), newLine.length());
+        while (changedAt < commonLength && line.charAt(changedAt) == newLine.charAt(changedAt)) {
+            changedAt++;
+        }
+        if (parsed && changedAt == line.length() && changedAt == newLine.length()) {
+            rescannedCount = 0;
+            return this;
+        }
+
+        // An argument ending right where the edit starts may be the one being typed, so it is scanned again.
+        int kept = 0;
+        while (kept < steps.size() && steps.get(kept).end < changedAt) {
+            kept++;
+        }
+        for (int i = steps.size() - 1; i >= kept; i--) {
+            undo(steps.remove(i));
+        }
+        line = newLine;
+        rescannedCount = 0;
+
+        RuntimeException tokenizerFailure = null;
+        int position = kept > 0 ? steps.get(kept - 1).end : 0;
+        try {
+            for (int end = LineTokenizer.next(line, position, argument); end != LineTokenizer.NO_TOKEN;
+                 end = LineTokenizer.next(line, end, argument)) {
+                scan(argument.toString(), end);
+                rescannedCount++;
+            }
+        } catch (IllegalArgumentException e) {
+            tokenizerFailure = e;
+        }
+        conclude(tokenizerFailure);
+        parsed = true;
+        return this;
+    }
+
+    public boolean isHelpRequested() {
+        return helpRequested;
+    }
+
+    // The result of the line, unless parsing it failed or it asks for help.
+    public Optional<ParseResult> getResult() {
+        return Optional.ofNullable(result);
+    }
+
+    public Optional<RuntimeException> getError() {
+        return Optional.ofNullable(error);
+    }
+
+    // How many arguments the last update scanned again.
+    public int getRescannedCount() {
+        return rescannedCount;
+    }
+
+    // Mirrors the loop of ArgumentParser.parse, recording what the argument changed so that it can be undone.
+    private void scan(String arg, int end) {
+        var step = new Step(end, positionalCount, pendingValueOrdinal, pendingValueUsedShortName, failure,
+                helpCount);
+        steps.add(step);
+        if (ArgumentParser.isHelp(arg)) {
+            helpCount++;
+            return;
+        }
+        if (failure != null) {
+            return;
+        }
+        if (pendingValueOrdinal != ArgumentParser.NOT_A_FLAG) {
+            setValue(step, pendingValueOrdinal, arg);
+            pendingValueOrdinal = ArgumentParser.NOT_A_FLAG;
+            return;
+        }
+
+        int ordinal = parser.resolveFlag(arg);
+        if (ordinal == ArgumentParser.NOT_A_FLAG && parser.hasRepeatableFlags()) {
+            int separator = parser.inlineValueSeparator(arg);
+            if (separator >= 0) {
+                ordinal = parser.resolveFlag(arg.substring(0, separator));
+                setAppeared(step, ordinal);
+                setValue(step, ordinal, arg.substring(separator + 1));
+                return;
+            }
+        }
+        if (ordinal == ArgumentParser.NOT_A_FLAG) {
+            if (positionalCount == positionalArgumentCount) {
+                failure = ArgumentParser.unrecognizedPositional(arg);
+            } else {
+                positionalValues[positionalCount++] = arg;
+            }
+        } else if (ordinal == ArgumentParser.UNKNOWN_FLAG) {
+            failure = parser.unknownFlag(arg);
+        } else {
+            setAppeared(step, ordinal);
+            if (parser.takesValue(ordinal)) {
+                pendingValueOrdinal = ordinal;
+                pendingValueUsedShortName = arg.length() == 2;
+            }
+        }
+    }
+
+    private void setAppeared(Step step, int ordinal) {
+        if ((appeared[ordinal >>> 6] & (1L << ordinal)) == 0) {
+            appeared[ordinal >>> 6] |= 1L << ordinal;
+            step.appearedOrdinal = ordinal;
+        }
+    }
+
+    private void setValue(Step step, int ordinal, String value) {
+        if (parser.isRepeatable(ordinal)) {
+            repeatedRawValues.get(ordinal).add(value);
+            repeatedValues[ordinal] = null;
+            step.repeatedOrdinal = ordinal;
+        } else {
+            step.valueOrdinal = ordinal;
+            step.previousValue = rawValues[ordinal];
+            rawValues[ordinal] = value;
+        }
+    }
+
+    private void undo(Step step) {
+        if (step.repeatedOrdinal >= 0) {
+            var values = repeatedRawValues.get(step.repeatedOrdinal);
+            values.remove(values.size() - 1);
+            repeatedValues[step.repeatedOrdinal] = null;
+        }
+        if (step.valueOrdinal >= 0) {
+            rawValues[step.valueOrdinal] = step.previousValue;
+        }
+        if (step.appearedOrdinal >= 0) {
+            appeared[step.appearedOrdinal >>> 6] &= ~(1L << step.appearedOrdinal);
+        }
+        positionalCount = step.positionalCount;
+        pendingValueOrdinal = step.pendingValueOrdinal;
+        pendingValueUsedShortName = step.pendingValueUsedShortName;
+        failure = step.failure;
+        helpCount = step.helpCount;
+    }
+
+    // Works out the outcome of the whole line from the state of the scan, as ArgumentParser.parse would.
+    private void conclude(RuntimeException tokenizerFailure) {
+        helpRequested = false;
+        result = null;
+        error = null;
+        if (tokenizerFailure != null) {
+            error = tokenizerFailure;
+            return;
+        }
+        if (helpCount > 0) {
+            helpRequested = true;
+            return;
+        }
+        var scanFailure = failure;
+        if (scanFailure == null && pendingValueOrdinal != ArgumentParser.NOT_A_FLAG) {
+            scanFailure = parser.missingValue(pendingValueOrdinal, pendingValueUsedShortName);
+        }
+        if (scanFailure != null) {
+            error = scanFailure;
+            return;
+        }
+
+        RepeatedValues[] repeated = null;
+        if (parser.hasRepeatableFlags()) {
+            for (int ordinal = 0; ordinal < flagCount; ordinal++) {
+                var values = repeatedRawValues.get(ordinal);
+                if (values != null && !values.isEmpty() && repeatedValues[ordinal] == null) {
+                    repeatedValues[ordinal] = parser.newRepeatedValues(ordinal);
+                    for (String value : values) {
+                        repeatedValues[ordinal].append(value);
+                    }
+                }
+            }
+            repeated = repeatedValues.clone();
+        }
+        try {
+            // The result keeps the arrays it is given, and values from the environment are filled into them.
+            result = parser.finish(rawValues.clone(), appeared.clone(), positionalValues.clone(), positionalCount,
+                    repeated, memo, null, null, null);
+        } catch (RuntimeException e) {
+            for (int ordinal = 0; ordinal < flagCount; ordinal++) {
+                if (repeatedValues[ordinal] != null && !repeatedValues[ordinal].isConverted()) {
+                    repeatedValues[ordinal] = null;
+                }
+            }
+            error = e;
+        }
+    }
+
+    // What scanning one argument did: the state before it, and which values and flags it set.
+    private static final class Step {
+        private final int end;
+        private final int positionalCount;
+        private final int pendingValueOrdinal;
+        private final boolean pendingValueUsedShortName;
+        private final RuntimeException failure;
+        private final int helpCount;
+        private int appearedOrdinal = -1;
+        private int valueOrdinal = -1;
+        private String previousValue;
+        private int repeatedOrdinal = -1;
+
+        private Step(int end, int positionalCount, int pendingValueOrdinal, boolean pendingValueUsedShortName,
+                     RuntimeException failure, int helpCount) {
+            this.end = end;
+            this.positionalCount = positionalCount;
+            this.pendingValueOrdinal = pendingValueOrdinal;
+            this.pendingValueUsedShortName = pendingValueUsedShortName;
+            this.failure = failure;
+            this.helpCount = helpCount;
+        }
+    }
+
+    // The last raw value converted for each flag, and what it converted to.
+    static final class ConversionMemo {
+        private final String[] rawValues;
+        private final Object[] values;
+        private final long[] bits;
+
+        ConversionMemo(int flagCount) {
+            this.rawValues = new String[flagCount];
+            this.values = new Object[flagCount];
+            this.bits = new long[flagCount];
+        }
+
+        boolean holds(int ordinal, String rawValue) {
+            return rawValue.equals(rawValues[ordinal]);
+        }
+
+        Object value(int ordinal) {
+            return values[ordinal];
+        }
+
+        long bits(int ordinal) {
+            return bits[ordinal];
+        }
+
+        void put(int ordinal, String rawValue, Object value) {
+            rawValues[ordinal] = rawValue;
+            values[ordinal] = value;
+        }
+
+        void putBits(int ordinal, String rawValue, long bits) {
+            rawValues[ordinal] = rawValue;
+            this.bits[ordinal] = bits;
+        }
+    }
+}
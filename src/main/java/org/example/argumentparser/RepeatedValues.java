@@ -0,0 +1,91 @@
+package org.example.argumentparser;
+
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.Objects;
+import java.util.RandomAccess;
+import java.util.function.Function;
+
+// The values of a repeatable flag in the order they appeared: appended raw while the command line is scanned,
+// converted in place afterwards, and then read through this list without being copied. The values live in
+// chunks that double in size, so appending never moves the values already stored and the chunk of an index is
+// found with a single bit scan.
+final class RepeatedValues extends AbstractList<Object> implements RandomAccess {
+
+    static final char NO_SEPARATOR = 0;
+
+    // A power of two.
+    private static final int FIRST_CHUNK_SIZE = 8;
+
+    private final char separator;
+    private Object[][] chunks = new Object[4][];
+    private int size = 0;
+    private boolean converted = false;
+
+    RepeatedValues(char separator) {
+        this.separator = separator;
+    }
+
+    // Appends one occurrence of the flag, split on the separator if the flag has one.
+    void append(String value) {
+        if (separator == NO_SEPARATOR) {
+            appendValue(value);
+            return;
+        }
+        int start = 0;
+        for (int i = value.indexOf(separator); i >= 0; i = value.indexOf(separator, start)) {
+            appendValue(value.substring(start, i));
+            start = i + 1;
+        }
+        appendValue(value.substring(start));
+    }
+
+    private void appendValue(Object value) {
+        int chunk = chunkOf(size);
+        if (chunk == chunks.length) {
+            chunks = Arrays.copyOf(chunks, chunk * 2);
+        }
+        if (chunks[chunk] == null) {
+            chunks[chunk] = new Object[FIRST_CHUNK_SIZE << chunk];
+        }
+        chunks[chunk][size - chunkStart(chunk)] = value;
+        size++;
+    }
+
+    boolean isConverted() {
+        return converted;
+    }
+
+    // Replaces every raw value with its converted value. A list whose conversion failed half way is discarded.
+    void convert(Function<String, Object> converter) {
+        for (int chunk = 0, done = 0; done < size; chunk++) {
+            var values = chunks[chunk];
+            int count = Math.min(values.length, size - done);
+            for (int i = 0; i < count; i++) {
+                values[i] = converter.apply((String) values[i]);
+            }
+            done += count;
+        }
+        this.converted = true;
+    }
+
+    @Override
+    public Object get(int index) {
+        Objects.checkIndex(index, size);
+        int chunk = chunkOf(index);
+        return chunks[chunk][index - chunkStart(chunk)];
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    private static int chunkOf(int index) {
+        return 31 - Integer.numberOfLeadingZeros(index / FIRST_CHUNK_SIZE + 1);
+    }
+
+    private static int chunkStart(int chunk) {
+        return FIRST_CHUNK_SIZE * ((1 << chunk) - 1);
+    }
+}
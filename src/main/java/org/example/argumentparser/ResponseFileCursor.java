@@ -0,0 +1,65 @@
+package org.example.argumentparser;
+
+import java.nio.file.Path;
+
+// Replaces every "@path" argument with the tokens of that file, read one at a time. "@@text" stands for the
+// literal argument "@text". Response files do not nest: "@" inside a file has no special meaning.
+final class ResponseFileCursor implements ArgumentCursor {
+
+    private final ArgumentCursor arguments;
+    private final StringBuilder fileToken = new StringBuilder();
+    private ResponseFileTokenizer file;
+    private CharSequence token;
+
+    ResponseFileCursor(ArgumentCursor arguments) {
+        this.arguments = arguments;
+    }
+
+    @Override
+    public boolean advance() {
+        while (true) {
+            if (file != null) {
+                if (file.next(fileToken)) {
+                    token = fileToken;
+                    return true;
+                }
+                file.close();
+                file = null;
+            }
+            if (!arguments.advance()) {
+                return false;
+            }
+            var argument = arguments.token();
+            if (argument.length() > 1 && argument.charAt(0) == '@') {
+                if (argument.charAt(1) == '@') {
+                    token = argument.subSequence(1, argument.length());
+                    return true;
+                }
+                file = ResponseFileTokenizer.open(Path.of(argument.subSequence(1, argument.length()).toString()));
+                continue;
+            }
+            token = argument;
+            return true;
+        }
+    }
+
+    @Override
+    public CharSequence token() {
+        return token;
+    }
+
+    // Counts every "@path" as one token.
+    @Override
+    public int count() {
+        return arguments.count();
+    }
+
+    @Override
+    public void close() {
+        if (file != null) {
+            file.close();
+            file = null;
+        }
+        arguments.close();
+    }
+}
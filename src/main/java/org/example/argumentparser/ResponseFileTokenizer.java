@@ -0,0 +1,166 @@
+package org.example.argumentparser;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Splits a UTF-8 response file into arguments. The file is memory mapped one window at a time and decoded
+ * through a small fixed buffer, so memory use does not depend on the size of the file.
+ *
+ * <ul>
+ *     <li>Arguments are separated by whitespace (space, tab, carriage return, line feed, form feed).</li>
+ *     <li>{@code '...'} quotes everything up to the next single quote literally.</li>
+ *     <li>{@code "..."} quotes everything up to the next unescaped double quote; inside it a backslash makes
+ *     the following character literal, e.g. {@code \"} and {@code \\}.</li>
+ *     <li>Outside of double quotes a backslash is an ordinary character, so Windows paths need no escaping.</li>
+ *     <li>Quoted and unquoted parts next to each other form one argument: {@code a"b c"d} is {@code ab cd},
+ *     and {@code ""} is an empty argument.</li>
+ *     <li>A {@code #} at the start of an argument comments out the rest of the line.</li>
+ * </ul>
+ */
+final class ResponseFileTokenizer implements AutoCloseable {
+
+    private static final long WINDOW_SIZE = 64L << 20;
+    private static final int CHAR_BUFFER_SIZE = 8192;
+
+    private final Path path;
+    private final FileChannel channel;
+    private final long size;
+    private final CharsetDecoder decoder = StandardCharsets.UTF_8.newDecoder();
+    private final CharBuffer chars = CharBuffer.allocate(CHAR_BUFFER_SIZE).flip();
+    private ByteBuffer window;
+    private long windowStart;
+    private boolean decoded = false;
+
+    private ResponseFileTokenizer(Path path, FileChannel channel) throws IOException {
+        this.path = path;
+        this.channel = channel;
+        this.size = channel.size();
+        map(0);
+    }
+
+    static ResponseFileTokenizer open(Path path) {
+        FileChannel channel = null;
+        try {
+            channel = FileChannel.open(path, StandardOpenOption.READ);
+            return new ResponseFileTokenizer(path, channel);
+        } catch (IOException e) {
+            if (channel != null) {
+                try {
+                    channel.close();
+                } catch (IOException suppressed) {
+                    e.addSuppressed(suppressed);
+                }
+            }
+            throw new IllegalArgumentException("Cannot read response file: " + path, e);
+        }
+    }
+
+    // Reads the next argument into token; returns false once the file is exhausted.
+    boolean next(StringBuilder token) {
+        token.setLength(0);
+        int c = read();
+        while (true) {
+            while (c != -1 && isWhitespace(c)) {
+                c = read();
+            }
+            if (c != '#') {
+                break;
+            }
+            while (c != -1 && c != '\n' && c != '\r') {
+                c = read();
+            }
+        }
+        if (c == -1) {
+            return false;
+        }
+
+        while (c != -1 && !isWhitespace(c)) {
+            if (c == '\'') {
+                while ((c = read()) != '\'') {
+                    if (c == -1) {
+                        throw unterminatedQuote();
+                    }
+                    token.append((char) c);
+                }
+            } else if (c == '"') {
+                while ((c = read()) != '"') {
+                    if (c == '\\') {
+                        c = read();
+                    }
+                    if (c == -1) {
+                        throw unterminatedQuote();
+                    }
+                    token.append((char) c);
+                }
+            } else {
+                token.append((char) c);
+            }
+            c = read();
+        }
+        return true;
+    }
+
+    @Override
+    public void close() {
+        try {
+            channel.close();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private int read() {
+        if (!chars.hasRemaining() && !fill()) {
+            return -1;
+        }
+        return chars.get();
+    }
+
+    private boolean fill() {
+        chars.clear();
+        try {
+            while (chars.position() == 0 && !decoded) {
+                boolean lastWindow = windowStart + window.limit() == size;
+                CoderResult result = decoder.decode(window, chars, lastWindow);
+                if (result.isError()) {
+                    throw new IllegalArgumentException("Response file is not valid UTF-8: " + path);
+                }
+                if (result.isUnderflow()) {
+                    if (lastWindow) {
+                        decoder.flush(chars);
+                        decoded = true;
+                    } else {
+                        // Continue with the next window, starting at any partial character left over.
+                        map(windowStart + window.position());
+                    }
+                }
+            }
+        } catch (IOException e) {
+            throw new IllegalArgumentException("Cannot read response file: " + path, e);
+        }
+        chars.flip();
+        return chars.hasRemaining();
+    }
+
+    private void map(long position) throws IOException {
+        windowStart = position;
+        window = channel.map(FileChannel.MapMode.READ_ONLY, position, Math.min(WINDOW_SIZE, size - position));
+    }
+
+    private IllegalArgumentException unterminatedQuote() {
+        return new IllegalArgumentException("Unterminated quote in response file: " + path);
+    }
+
+    static boolean isWhitespace(int c) {
+        return c == ' ' || c == '\t' || c == '\r' || c == '\n' || c == '\f';
+    }
+}
@@ -0,0 +1,367 @@
+package org.example.argumentparser;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.*;
+import java.util.function.Function;
+
+// A built parser's schema in a compact binary form, written once at build time and loaded at startup instead
+// of running the builders: loading maps the file and creates the flags and the parser directly, without the
+// name validation of FlagBuilder or the checks of ArgumentParserBuilder, which the schema passed when it was
+// written. Converters are stored by their id in a ConverterRegistry, and so are the defaults of flags with a
+// converter, as the string the converter turns back into the default.
+//
+// Snapshots hold the schema only: a parser with subcommands, constraints, environment variables, a config file,
+// concurrent conversion, a listener, converter caches or value completers cannot be written.
+public final class SchemaSnapshot {
+
+    private static final int MAGIC = 0x41524753; // "ARGS"
+    private static final short VERSION = 1;
+
+    private static final byte SWITCH = 0;
+    private static final byte OPTIONAL = 1;
+    private static final byte REQUIRED = 2;
+    private static final byte DEFAULT = 3;
+    private static final byte INT = 4;
+    private static final byte LONG = 5;
+    private static final byte DOUBLE = 6;
+    private static final byte REPEATABLE = 7;
+
+    private static final int HAS_SHORT_NAME = 1;
+    private static final int HAS_LONG_NAME = 1 << 1;
+    private static final int LAZY = 1 << 2;
+    private static final int HAS_DEFAULT_VALUE = 1 << 3;
+    private static final int HAS_SEPARATOR = 1 << 4;
+
+    private static final int EXPAND_RESPONSE_FILES = 1;
+    private static final int SHELL_COMPLETION = 1 << 1;
+    private static final int HAS_DESCRIPTION = 1 << 2;
+    private static final int HAS_VARIADIC_POSITIONAL_ARGUMENT = 1 << 3;
+
+    private final ArgumentParser parser;
+    private final Map<String, Flag> flags = new HashMap<>();
+    private final Map<String, PositionalArgument> positionalArguments = new HashMap<>();
+
+    private SchemaSnapshot(ArgumentParser parser) {
+        this.parser = parser;
+        for (Flag flag : parser.getFlags()) {
+            flag.getOptionalShortName().ifPresent(name -> flags.put("-" + name, flag));
+            flag.getLongName().ifPresent(name -> flags.put("--" + name, flag));
+        }
+        for (PositionalArgument positionalArgument : parser.getPositionalArguments()) {
+            positionalArguments.put(positionalArgument.getName(), positionalArgument);
+        }
+    }
+
+    public ArgumentParser getParser() {
+        return parser;
+    }
+
+    // The loaded flag named "-x" or "--long_name", to read its value from a ParseResult of the loaded parser.
+    public <F extends Flag> F getFlag(String name, Class<F> type) {
+        var flag = flags.get(name);
+        if (flag == null) {
+            throw new IllegalArgumentException("No such flag in schema snapshot: " + name);
+        }
+        if (!type.isInstance(flag)) {
+            throw new IllegalArgumentException("Flag " + name + " is not a " + type.getSimpleName());
+        }
+        return type.cast(flag);
+    }
+
+    public PositionalArgument getPositionalArgument(String name) {
+        var positionalArgument = positionalArguments.get(name);
+        if (positionalArgument == null) {
+            throw new IllegalArgumentException("No such positional argument in schema snapshot: " + name);
+        }
+        return positionalArgument;
+    }
+
+    public Optional<VariadicPositionalArgument> getVariadicPositionalArgument() {
+        return parser.getVariadicPositionalArgument();
+    }
+
+    public static void write(ArgumentParser parser, ConverterRegistry registry, Path file) throws IOException {
+        Files.write(file, toBytes(parser, registry));
+    }
+
+    public static byte[] toBytes(ArgumentParser parser, ConverterRegistry registry) {
+        var limitation = parser.snapshotLimitation();
+        if (limitation.isPresent()) {
+            throw new IllegalStateException("Schema snapshots do not support " + limitation.get());
+        }
+        var out = new Writer();
+        out.putInt(MAGIC);
+        out.putShort(VERSION);
+        int options = (parser.expandsResponseFiles() ? EXPAND_RESPONSE_FILES : 0)
+                | (parser.hasShellCompletion() ? SHELL_COMPLETION : 0)
+                | (parser.getProgramDescription().isPresent() ? HAS_DESCRIPTION : 0)
+                | (parser.getVariadicPositionalArgument().isPresent() ? HAS_VARIADIC_POSITIONAL_ARGUMENT : 0);
+        out.putByte(options);
+        out.putString(parser.getProgramName());
+        if (parser.getProgramDescription().isPresent()) {
+            out.putString(parser.getProgramDescription().get());
+        }
+
+        var flags = parser.getFlags();
+        out.putInt(flags.length);
+        for (Flag flag : flags) {
+            writeFlag(out, flag, registry);
+        }
+
+        var positionalArguments = parser.getPositionalArguments();
+        out.putInt(positionalArguments.size());
+        for (PositionalArgument positionalArgument : positionalArguments) {
+            out.putString(positionalArgument.getName());
+            out.putString(positionalArgument.getDescription());
+        }
+        if (parser.getVariadicPositionalArgument().isPresent()) {
+            out.putString(parser.getVariadicPositionalArgument().get().getName());
+            out.putString(parser.getVariadicPositionalArgument().get().getDescription());
+        }
+        return out.toByteArray();
+    }
+
+    private static void writeFlag(Writer out, Flag flag, ConverterRegistry registry) {
+        Function<String, ?> converter = null;
+        Object defaultValue = null;
+        Optional<Character> separator = Optional.empty();
+        byte kind;
+        if (flag instanceof Flag.IntFlag) {
+            kind = INT;
+        } else if (flag instanceof Flag.LongFlag) {
+            kind = LONG;
+        } else if (flag instanceof Flag.DoubleFlag) {
+            kind = DOUBLE;
+        } else if (flag instanceof Flag.RequiredFlagWithValue) {
+            kind = REQUIRED;
+            converter = ((Flag.RequiredFlagWithValue<?>) flag).getConverter();
+        } else if (flag instanceof Flag.OptionalFlagWithValue) {
+            kind = OPTIONAL;
+            converter = ((Flag.OptionalFlagWithValue<?>) flag).getConverter();
+        } else if (flag instanceof Flag.OptionalFlagWithDefaultValue) {
+            kind = DEFAULT;
+            converter = ((Flag.OptionalFlagWithDefaultValue<?>) flag).getConverter();
+            defaultValue = ((Flag.OptionalFlagWithDefaultValue<?>) flag).getDefaultValue();
+        } else if (flag instanceof Flag.RepeatableFlag) {
+            kind = REPEATABLE;
+            converter = ((Flag.RepeatableFlag<?>) flag).getConverter();
+            separator = ((Flag.RepeatableFlag<?>) flag).getSeparator();
+        } else if (flag instanceof Flag.OptionalFlagWithoutValue) {
+            kind = SWITCH;
+        } else {
+            throw new IllegalArgumentException("Flag kind not supported by schema snapshots: " + flag.getName());
+        }
+
+        int bits = (flag.getOptionalShortName().isPresent() ? HAS_SHORT_NAME : 0)
+                | (flag.getLongName().isPresent() ? HAS_LONG_NAME : 0)
+                | (flag.convertsLazily() ? LAZY : 0)
+                | (defaultValue != null ? HAS_DEFAULT_VALUE : 0)
+                | (separator.isPresent() ? HAS_SEPARATOR : 0);
+        out.putByte(kind);
+        out.putByte(bits);
+        if (flag.getOptionalShortName().isPresent()) {
+            out.putChar(flag.getOptionalShortName().get().charAt(0));
+        }
+        if (flag.getLongName().isPresent()) {
+            out.putString(flag.getLongName().get());
+        }
+        out.putString(flag.getDescription());
+        if (kind == INT || kind == LONG || kind == DOUBLE) {
+            out.putLong(((Flag.PrimitiveFlag<?>) flag).defaultBits());
+        }
+        if (converter != null) {
+            out.putString(registry.idOf(flag, converter));
+        }
+        if (defaultValue != null) {
+            var rawDefault = String.valueOf(defaultValue);
+            if (!defaultValue.equals(converter.apply(rawDefault))) {
+                throw new IllegalArgumentException("Default value of flag " + flag.getName()
+                        + " does not convert back from its string form: " + rawDefault);
+            }
+            out.putString(rawDefault);
+        }
+        if (separator.isPresent()) {
+            out.putChar(separator.get());
+        }
+    }
+
+    // Maps the file rather than reading it through a stream; the parser keeps nothing of the mapping.
+    public static SchemaSnapshot load(Path file, ConverterRegistry registry) throws IOException {
+        try (var channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            if (channel.size() > Integer.MAX_VALUE) {
+                throw new IllegalArgumentException("Schema snapshot is too large: " + file);
+            }
+            return load(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()), registry);
+        }
+    }
+
+    public static SchemaSnapshot load(ByteBuffer bytes, ConverterRegistry registry) {
+        var in = new Reader(bytes.duplicate());
+        if (in.getInt() != MAGIC) {
+            throw new IllegalArgumentException("Not a schema snapshot.");
+        }
+        short version = in.getShort();
+        if (version != VERSION) {
+            throw new IllegalArgumentException("Unsupported schema snapshot version: " + version);
+        }
+        int options = in.getByte();
+        var programName = in.getString();
+        var programDescription = (options & HAS_DESCRIPTION) != 0 ? Optional.of(in.getString())
+                : Optional.<String>empty();
+
+        int flagCount = in.getInt();
+        var flags = new LinkedHashSet<Flag>(flagCount * 2);
+        for (int i = 0; i < flagCount; i++) {
+            flags.add(readFlag(in, registry));
+        }
+
+        int positionalCount = in.getInt();
+        var positionalArguments = new ArrayList<PositionalArgument>(positionalCount);
+        for (int i = 0; i < positionalCount; i++) {
+            positionalArguments.add(new PositionalArgument(in.getString(), in.getString()));
+        }
+        var variadicPositionalArgument = (options & HAS_VARIADIC_POSITIONAL_ARGUMENT) != 0
+                ? Optional.of(new VariadicPositionalArgument(in.getString(), in.getString()))
+                : Optional.<VariadicPositionalArgument>empty();
+
+        var parser = new ArgumentParser(programName, programDescription, flags, positionalArguments,
+                variadicPositionalArgument, (options & EXPAND_RESPONSE_FILES) != 0, Optional.empty(), List.of(),
+                ParseListener.NONE, List.of(), Map.of(), Optional.empty(), System::getenv, Map.of(),
+                (options & SHELL_COMPLETION) != 0, Map.of());
+        return new SchemaSnapshot(parser);
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Flag readFlag(Reader in, ConverterRegistry registry) {
+        byte kind = in.getByte();
+        int bits = in.getByte();
+        var shortName = (bits & HAS_SHORT_NAME) != 0 ? Optional.of(String.valueOf(in.getChar()))
+                : Optional.<String>empty();
+        var longName = (bits & HAS_LONG_NAME) != 0 ? Optional.of(in.getString()) : Optional.<String>empty();
+        var description = in.getString();
+        boolean lazy = (bits & LAZY) != 0;
+        switch (kind) {
+            case SWITCH:
+                return new Flag.OptionalFlagWithoutValue(shortName, longName, description);
+            case INT:
+                return new Flag.IntFlag(shortName, longName, description, (int) in.getLong());
+            case LONG:
+                return new Flag.LongFlag(shortName, longName, description, in.getLong());
+            case DOUBLE:
+                return new Flag.DoubleFlag(shortName, longName, description, Double.longBitsToDouble(in.getLong()));
+            default:
+                break;
+        }
+        var converter = (Function<String, Object>) registry.converter(in.getString());
+        switch (kind) {
+            case OPTIONAL:
+                return new Flag.OptionalFlagWithValue<>(shortName, longName, description, lazy, converter);
+            case REQUIRED:
+                return new Flag.RequiredFlagWithValue<>(shortName, longName, description, lazy, converter);
+            case DEFAULT:
+                var defaultValue = (bits & HAS_DEFAULT_VALUE) != 0 ? converter.apply(in.getString()) : null;
+                return new Flag.OptionalFlagWithDefaultValue<>(shortName, longName, description, lazy, defaultValue,
+                        converter);
+            case REPEATABLE:
+                var separator = (bits & HAS_SEPARATOR) != 0 ? Optional.of(in.getChar()) : Optional.<Character>empty();
+                return new Flag.RepeatableFlag<>(shortName, longName, description, separator, converter);
+            default:
+                throw new IllegalArgumentException("Unknown flag kind in schema snapshot: " + kind);
+        }
+    }
+
+    // Big-endian like ByteBuffer; strings are a length in bytes followed by their UTF-8 encoding.
+    private static final class Writer {
+        private ByteBuffer bytes = ByteBuffer.allocate(1024);
+
+        private void putByte(int value) {
+            ensure(1).put((byte) value);
+        }
+
+        private void putShort(short value) {
+            ensure(2).putShort(value);
+        }
+
+        private void putChar(char value) {
+            ensure(2).putChar(value);
+        }
+
+        private void putInt(int value) {
+            ensure(4).putInt(value);
+        }
+
+        private void putLong(long value) {
+            ensure(8).putLong(value);
+        }
+
+        private void putString(String value) {
+            var encoded = value.getBytes(StandardCharsets.UTF_8);
+            putInt(encoded.length);
+            ensure(encoded.length).put(encoded);
+        }
+
+        private ByteBuffer ensure(int length) {
+            if (bytes.remaining() < length) {
+                var grown = ByteBuffer.allocate(Math.max(bytes.capacity() * 2, bytes.position() + length));
+                bytes.flip();
+                bytes = grown.put(bytes);
+            }
+            return bytes;
+        }
+
+        private byte[] toByteArray() {
+            return Arrays.copyOf(bytes.array(), bytes.position());
+        }
+    }
+
+    private static final class Reader {
+        private final ByteBuffer bytes;
+
+        private Reader(ByteBuffer bytes) {
+            this.bytes = bytes;
+        }
+
+        private byte getByte() {
+            return checked(1).get();
+        }
+
+        private short getShort() {
+            return checked(2).getShort();
+        }
+
+        private char getChar() {
+            return checked(2).getChar();
+        }
+
+        private int getInt() {
+            return checked(4).getInt();
+        }
+
+        private long getLong() {
+            return checked(8).getLong();
+        }
+
+        private String getString() {
+            int length = getInt();
+            if (length < 0) {
+                throw new IllegalArgumentException("Corrupt schema snapshot.");
+            }
+            var encoded = new byte[length];
+            checked(length).get(encoded);
+            return new String(encoded, StandardCharsets.UTF_8);
+        }
+
+        private ByteBuffer checked(int length) {
+            if (bytes.remaining() < length) {
+                throw new IllegalArgumentException("Truncated schema snapshot.");
+            }
+            return bytes;
+        }
+    }
+}
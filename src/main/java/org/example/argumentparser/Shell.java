@@ -0,0 +1,8 @@
+package org.example.argumentparser;
+
+// The shells ArgumentParser.completionScript writes completion scripts for.
+public enum Shell {
+    BASH,
+    ZSH,
+    FISH
+}
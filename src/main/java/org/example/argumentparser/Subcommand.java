@@ -0,0 +1,50 @@
+package org.example.argumentparser;
+
+import java.util.function.Supplier;
+import java.util.regex.Pattern;
+
+// A subcommand whose parser is only built, and its flags only class-loaded, the first time the subcommand is
+// selected on a command line. The parser is then kept for later parses.
+final class Subcommand {
+
+    private static final Pattern NAME_PATTERN = Pattern.compile("^[a-zA-Z0-9][a-zA-Z0-9_-]*$");
+
+    private final String name;
+    private final String description;
+    private final Supplier<ArgumentParser> parserSupplier;
+    private volatile ArgumentParser parser;
+
+    Subcommand(String name, String description, Supplier<ArgumentParser> parserSupplier) {
+        if (!NAME_PATTERN.matcher(name).matches()) {
+            throw new IllegalArgumentException("Invalid subcommand name: " + name);
+        }
+        this.name = name;
+        this.description = description;
+        this.parserSupplier = parserSupplier;
+    }
+
+    String getName() {
+        return name;
+    }
+
+    String getDescription() {
+        return description;
+    }
+
+    ArgumentParser getParser() {
+        var parser = this.parser;
+        if (parser == null) {
+            synchronized (this) {
+                parser = this.parser;
+                if (parser == null) {
+                    parser = parserSupplier.get();
+                    if (parser == null) {
+                        throw new IllegalStateException("Subcommand " + name + " supplied no parser.");
+                    }
+                    this.parser = parser;
+                }
+            }
+        }
+        return parser;
+    }
+}
@@ -0,0 +1,293 @@
+package org.example.argumentparser;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Optional;
+import java.util.function.BooleanSupplier;
+
+// The help text is laid out once per parser: one string holding every line, plus where each line ends and
+// how far its continuation lines are indented when they have to be wrapped. Rendering without a width is
+// a single append; rendering with one only slices that string.
+final class UsageLayout {
+
+    private static final String INDENTATION = "    ";
+    private static final String VARIADIC_SUFFIX = "...";
+    private static final String SUBCOMMAND_SYNOPSIS = "<subcommand> ...";
+    private static final String VALUE_DESC_PREFIX = INDENTATION + INDENTATION + " : ";
+
+    private final String text;
+    private final int[] lineEnds;
+    private final int[] hangingIndents;
+    private final String spaces;
+
+    private UsageLayout(String text, int[] lineEnds, int[] hangingIndents) {
+        this.text = text;
+        this.lineEnds = lineEnds;
+        this.hangingIndents = hangingIndents;
+        int maxHangingIndent = 0;
+        for (int hangingIndent : hangingIndents) {
+            maxHangingIndent = Math.max(maxHangingIndent, hangingIndent);
+        }
+        this.spaces = " ".repeat(maxHangingIndent);
+    }
+
+    static UsageLayout of(String programName, Optional<String> programDescription, Flag[] flags,
+                          List<PositionalArgument> positionalArguments,
+                          Optional<VariadicPositionalArgument> variadicPositionalArgument,
+                          List<Subcommand> subcommands) {
+        var builder = new Builder();
+
+        builder.append("USAGE: ").append(programName).append(' ');
+        boolean hasOptionalFlags = false;
+        for (Flag flag : flags) {
+            if (!ArgumentParser.isRequired(flag)) {
+                builder.append(hasOptionalFlags ? ' ' : '[').appendSynopsis(flag);
+                hasOptionalFlags = true;
+            }
+        }
+        if (hasOptionalFlags) {
+            builder.append(']').append(' ');
+        }
+        for (Flag flag : flags) {
+            if (ArgumentParser.isRequired(flag)) {
+                builder.appendSynopsis(flag).append(' ');
+            }
+        }
+        for (PositionalArgument positionalArgument : positionalArguments) {
+            builder.append(positionalArgument.getName()).append(' ');
+        }
+        if (variadicPositionalArgument.isPresent()) {
+            builder.append(variadicPositionalArgument.get().getName()).append(VARIADIC_SUFFIX).append(' ');
+        }
+        if (!subcommands.isEmpty()) {
+            builder.append(SUBCOMMAND_SYNOPSIS).append(' ');
+        }
+        builder.endLine("USAGE: ".length());
+
+        if (programDescription.isPresent()) {
+            builder.append(programDescription.get()).endLine(0);
+        }
+        builder.endLine(0);
+
+        if (!positionalArguments.isEmpty() || variadicPositionalArgument.isPresent()) {
+            int maxLength = 0;
+            for (PositionalArgument positionalArgument : positionalArguments) {
+                maxLength = Math.max(maxLength, positionalArgument.getName().length());
+            }
+            if (variadicPositionalArgument.isPresent()) {
+                maxLength = Math.max(maxLength,
+                        variadicPositionalArgument.get().getName().length() + VARIADIC_SUFFIX.length());
+            }
+            builder.append("POSITIONAL ARGUMENTS").endLine(0);
+            for (PositionalArgument positionalArgument : positionalArguments) {
+                builder.appendEntry(positionalArgument.getName(), positionalArgument.getDescription(),
+                        maxLength);
+            }
+            if (variadicPositionalArgument.isPresent()) {
+                builder.appendEntry(variadicPositionalArgument.get().getName() + VARIADIC_SUFFIX,
+                        variadicPositionalArgument.get().getDescription(), maxLength);
+            }
+            builder.endLine(0);
+        }
+
+        if (!subcommands.isEmpty()) {
+            int maxLength = 0;
+            for (Subcommand subcommand : subcommands) {
+                maxLength = Math.max(maxLength, subcommand.getName().length());
+            }
+            builder.append("SUBCOMMANDS").endLine(0);
+            for (Subcommand subcommand : subcommands) {
+                builder.appendEntry(subcommand.getName(), subcommand.getDescription(), maxLength);
+            }
+            builder.endLine(0);
+        }
+
+        builder.append("FLAGS").endLine(0);
+        builder.appendFlag(new Flag.OptionalFlagWithoutValue(Optional.of("h"), Optional.of("help"),
+                "Print the program usage."));
+        for (Flag flag : flags) {
+            if (ArgumentParser.isRequired(flag)) {
+                builder.appendFlag(flag);
+            }
+        }
+        for (Flag flag : flags) {
+            if (!ArgumentParser.isRequired(flag)) {
+                builder.appendFlag(flag);
+            }
+        }
+        return builder.build();
+    }
+
+    String getText() {
+        return text;
+    }
+
+    // A width of zero or less disables wrapping, a page height of zero or less disables paging. When a
+    // page is full, nextPage decides whether the rest is printed.
+    void render(Appendable out, int width, int pageHeight, BooleanSupplier nextPage) throws IOException {
+        if (width <= 0 && pageHeight <= 0) {
+            out.append(text);
+            return;
+        }
+        var pager = new Pager(out, pageHeight, nextPage);
+        int lineStart = 0;
+        for (int line = 0; line < lineEnds.length; line++) {
+            int lineEnd = lineEnds[line];
+            if (!renderLine(pager, lineStart, lineEnd, width, hangingIndents[line])) {
+                return;
+            }
+            lineStart = lineEnd + 1;
+        }
+    }
+
+    private boolean renderLine(Pager pager, int start, int end, int width, int hangingIndent) throws IOException {
+        if (width <= 0) {
+            return pager.line(0, start, end);
+        }
+        int continuationIndent = Math.min(hangingIndent, width / 2);
+        int indent = 0;
+        while (end - start + indent > width) {
+            int firstWord = start;
+            while (firstWord < end && text.charAt(firstWord) == ' ') {
+                firstWord++;
+            }
+            int lineBreak = text.lastIndexOf(' ', start + width - indent);
+            if (lineBreak <= firstWord) {
+                // A single word wider than the line; let it overflow rather than split it.
+                lineBreak = text.indexOf(' ', firstWord);
+                if (lineBreak < 0 || lineBreak >= end) {
+                    break;
+                }
+            }
+            if (!pager.line(indent, start, lineBreak)) {
+                return false;
+            }
+            start = lineBreak;
+            while (start < end && text.charAt(start) == ' ') {
+                start++;
+            }
+            indent = continuationIndent;
+        }
+        if (start == end && indent != 0) {
+            // Only the trailing spaces of a wrapped line were left.
+            return true;
+        }
+        return pager.line(indent, start, end);
+    }
+
+    private final class Pager {
+        private final Appendable out;
+        private final int pageHeight;
+        private final BooleanSupplier nextPage;
+        private int linesOnPage = 0;
+
+        private Pager(Appendable out, int pageHeight, BooleanSupplier nextPage) {
+            this.out = out;
+            this.pageHeight = pageHeight;
+            this.nextPage = nextPage;
+        }
+
+        private boolean line(int indent, int start, int end) throws IOException {
+            if (pageHeight > 0 && linesOnPage == pageHeight) {
+                if (!nextPage.getAsBoolean()) {
+                    return false;
+                }
+                linesOnPage = 0;
+            }
+            out.append(spaces, 0, indent).append(text, start, end).append('\n');
+            linesOnPage++;
+            return true;
+        }
+    }
+
+    private static final class Builder {
+        private final StringBuilder text = new StringBuilder();
+        private int[] lineEnds = new int[16];
+        private int[] hangingIndents = new int[16];
+        private int lineCount = 0;
+
+        private Builder append(String value) {
+            text.append(value);
+            return this;
+        }
+
+        private Builder append(char value) {
+            text.append(value);
+            return this;
+        }
+
+        private Builder pad(int count) {
+            for (int i = 0; i < count; i++) {
+                text.append(' ');
+            }
+            return this;
+        }
+
+        private Builder appendSynopsis(Flag flag) {
+            if (flag.getOptionalShortName().isPresent()) {
+                return append('-').append(flag.getOptionalShortName().get());
+            }
+            return append("--").append(flag.getLongName().get());
+        }
+
+        private void appendEntry(String name, String description, int nameWidth) {
+            append(INDENTATION).append(name).pad(nameWidth - name.length());
+            append(" : ").append(description).endLine(INDENTATION.length() + nameWidth + " : ".length());
+        }
+
+        private void appendFlag(Flag flag) {
+            append(INDENTATION);
+            if (flag.getOptionalShortName().isPresent()) {
+                append('-').append(flag.getOptionalShortName().get());
+            }
+            if (flag.getLongName().isPresent()) {
+                if (flag.getOptionalShortName().isPresent()) {
+                    append(' ');
+                }
+                append("--").append(flag.getLongName().get());
+            }
+            if (flag instanceof Flag.RepeatableFlag) {
+                append(" <value>...");
+            } else if (ArgumentParser.requiresValue(flag)) {
+                append(" <value>");
+            }
+            endLine(INDENTATION.length());
+
+            append(VALUE_DESC_PREFIX).append('[').append(ArgumentParser.isRequired(flag) ? "Required" : "Optional")
+                    .append("] ");
+            if (ArgumentParser.hasDefaultValue(flag)) {
+                append("(default=").append(String.valueOf(((HasDefaultValue<?>) flag).getDefaultValue())).append(") ");
+            }
+            append(flag.getDescription()).endLine(VALUE_DESC_PREFIX.length());
+        }
+
+        // Descriptions may contain line breaks of their own; every physical line is tracked separately.
+        private Builder endLine(int hangingIndent) {
+            int lineStart = lineCount == 0 ? 0 : lineEnds[lineCount - 1] + 1;
+            for (int i = lineStart; i < text.length(); i++) {
+                if (text.charAt(i) == '\n') {
+                    addLine(i, hangingIndent);
+                }
+            }
+            addLine(text.length(), hangingIndent);
+            text.append('\n');
+            return this;
+        }
+
+        private void addLine(int end, int hangingIndent) {
+            if (lineCount == lineEnds.length) {
+                lineEnds = Arrays.copyOf(lineEnds, lineCount * 2);
+                hangingIndents = Arrays.copyOf(hangingIndents, lineCount * 2);
+            }
+            lineEnds[lineCount] = end;
+            hangingIndents[lineCount] = hangingIndent;
+            lineCount++;
+        }
+
+        private UsageLayout build() {
+            return new UsageLayout(text.toString(), Arrays.copyOf(lineEnds, lineCount),
+                    Arrays.copyOf(hangingIndents, lineCount));
+        }
+    }
+}
@@ -0,0 +1,10 @@
+package org.example.argumentparser;
+
+import java.util.List;
+
+// Suggests values for a flag during shell completion, given the part of the value typed so far.
+@FunctionalInterface
+public interface ValueCompleter {
+
+    List<String> complete(String prefix);
+}
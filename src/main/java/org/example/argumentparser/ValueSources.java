@@ -0,0 +1,218 @@
+package org.example.argumentparser;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Map;
+import java.util.Optional;
+import java.util.function.Function;
+import java.util.function.ToIntFunction;
+
+// Values for the flags that were not given on the command line, from environment variables and then from a
+// config file; whatever is still missing falls back to the default. A flag that gets a value this way counts as
+// having appeared. The config file is read once, the first time a flag is missing, with a single scan of a
+// memory map; only the values of lines whose key is the name of a flag are decoded, and kept by ordinal.
+//
+// Config files are a properties/INI subset: "key = value" or "key: value" lines, with blank lines, comments
+// starting with '#', ';' or '!', and [section] headers ignored. Keys are flag names without dashes. A value
+// may be enclosed in double quotes; there are no escapes. A later line for the same key wins.
+final class ValueSources {
+
+    private final Flag[] flags;
+    private final boolean[] takesValue;
+    private final FlagNameIndex nameIndex;
+    private final String[] environmentVariables;
+    private final boolean hasEnvironmentVariables;
+    private final Optional<Path> configFile;
+    private final Function<String, String> environment;
+    // The raw value the config file gives each flag, once it has been read. Parses may race to read it, which
+    // only costs a second read.
+    private volatile String[] configValues;
+
+    ValueSources(Flag[] flags, boolean[] takesValue, FlagNameIndex nameIndex, ToIntFunction<Flag> ordinalOf,
+                 Map<Flag, String> environmentVariables, Optional<Path> configFile,
+                 Function<String, String> environment) {
+        this.flags = flags;
+        this.takesValue = takesValue;
+        this.nameIndex = nameIndex;
+        this.environmentVariables = new String[flags.length];
+        for (var variable : environmentVariables.entrySet()) {
+            this.environmentVariables[ordinalOf.applyAsInt(variable.getKey())] = variable.getValue();
+        }
+        this.hasEnvironmentVariables = !environmentVariables.isEmpty();
+        this.configFile = configFile;
+        this.environment = environment;
+    }
+
+    boolean isEmpty() {
+        return !hasEnvironmentVariables && configFile.isEmpty();
+    }
+
+    boolean readsEnvironment() {
+        return hasEnvironmentVariables;
+    }
+
+    boolean hasRelativeConfigFile() {
+        return configFile.isPresent() && !configFile.get().isAbsolute();
+    }
+
+    // Fills in the raw values of the flags that have not appeared yet.
+    void fill(String[] rawValues, long[] appeared) {
+        boolean missingFlags = false;
+        for (int ordinal = 0; ordinal < flags.length; ordinal++) {
+            if (hasAppeared(appeared, ordinal)) {
+                continue;
+            }
+            var variable = environmentVariables[ordinal];
+            var value = variable != null ? environment.apply(variable) : null;
+            if (value != null) {
+                set(ordinal, value, "environment variable " + variable, rawValues, appeared);
+            } else {
+                missingFlags = true;
+            }
+        }
+        if (missingFlags && configFile.isPresent()) {
+            var values = configValues;
+            if (values == null) {
+                values = scanConfigFile(configFile.get());
+                configValues = values;
+            }
+            // Flags already given on the command line or by the environment keep their value.
+            var source = "config file " + configFile.get();
+            for (int ordinal = 0; ordinal < flags.length; ordinal++) {
+                if (values[ordinal] != null && !hasAppeared(appeared, ordinal)) {
+                    set(ordinal, values[ordinal], source, rawValues, appeared);
+                }
+            }
+        }
+    }
+
+    private String[] scanConfigFile(Path path) {
+        var values = new String[flags.length];
+        ByteBuffer bytes;
+        try (var channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            if (channel.size() > Integer.MAX_VALUE) {
+                throw new IllegalArgumentException("Config file is too large: " + path);
+            }
+            bytes = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        } catch (IOException e) {
+            throw new IllegalArgumentException("Cannot read config file: " + path, e);
+        }
+
+        var key = new AsciiView(bytes);
+        int limit = bytes.limit();
+        int position = 0;
+        while (position < limit) {
+            int lineEnd = position;
+            while (lineEnd < limit && bytes.get(lineEnd) != '\n') {
+                lineEnd++;
+            }
+            int start = skipBlanks(bytes, position, lineEnd);
+            int keyEnd = start;
+            while (keyEnd < lineEnd && isKeyByte(bytes.get(keyEnd))) {
+                keyEnd++;
+            }
+            int separator = skipBlanks(bytes, keyEnd, lineEnd);
+            if (keyEnd > start && separator < lineEnd
+                    && (bytes.get(separator) == '=' || bytes.get(separator) == ':')) {
+                int ordinal = key.of(start, keyEnd).lookup(nameIndex);
+                if (ordinal != FlagNameIndex.NOT_FOUND) {
+                    values[ordinal] = value(bytes, skipBlanks(bytes, separator + 1, lineEnd), lineEnd);
+                }
+            }
+            position = lineEnd + 1;
+        }
+        return values;
+    }
+
+    private void set(int ordinal, String value, String source, String[] rawValues, long[] appeared) {
+        if (takesValue[ordinal]) {
+            rawValues[ordinal] = value;
+            appeared[ordinal >>> 6] |= 1L << ordinal;
+        } else if (value.equalsIgnoreCase("true")) {
+            appeared[ordinal >>> 6] |= 1L << ordinal;
+        } else if (value.equalsIgnoreCase("false")) {
+            appeared[ordinal >>> 6] &= ~(1L << ordinal);
+        } else {
+            throw new IllegalArgumentException("Invalid value for flag " + flags[ordinal].getName() + " from "
+                    + source + ": " + value);
+        }
+    }
+
+    private static String value(ByteBuffer bytes, int start, int lineEnd) {
+        int end = lineEnd;
+        while (end > start && isBlank(bytes.get(end - 1))) {
+            end--;
+        }
+        if (end - start >= 2 && bytes.get(start) == '"' && bytes.get(end - 1) == '"') {
+            start++;
+            end--;
+        }
+        var value = new byte[end - start];
+        bytes.get(start, value);
+        return new String(value, StandardCharsets.UTF_8);
+    }
+
+    private static int skipBlanks(ByteBuffer bytes, int position, int end) {
+        while (position < end && isBlank(bytes.get(position))) {
+            position++;
+        }
+        return position;
+    }
+
+    private static boolean isBlank(byte b) {
+        return b == ' ' || b == '\t' || b == '\r';
+    }
+
+    private static boolean isKeyByte(byte b) {
+        return (b >= 'a' && b <= 'z') || (b >= 'A' && b <= 'Z') || (b >= '0' && b <= '9') || b == '_';
+    }
+
+    private static boolean hasAppeared(long[] appeared, int ordinal) {
+        return (appeared[ordinal >>> 6] & (1L << ordinal)) != 0;
+    }
+
+    // The ASCII key of a line, looked up in the name index without copying it out of the map.
+    private static final class AsciiView implements CharSequence {
+        private final ByteBuffer bytes;
+        private int start;
+        private int end;
+
+        private AsciiView(ByteBuffer bytes) {
+            this.bytes = bytes;
+        }
+
+        private AsciiView of(int start, int end) {
+            this.start = start;
+            this.end = end;
+            return this;
+        }
+
+        private int lookup(FlagNameIndex nameIndex) {
+            return length() == 1 ? nameIndex.lookupShortName(charAt(0)) : nameIndex.lookupLongName(this, 0);
+        }
+
+        @Override
+        public int length() {
+            return end - start;
+        }
+
+        @Override
+        public char charAt(int index) {
+            return (char) bytes.get(start + index);
+        }
+
+        @Override
+        public CharSequence subSequence(int from, int to) {
+            return new AsciiView(bytes).of(start + from, start + to);
+        }
+
+        @Override
+        public String toString() {
+            return new StringBuilder(this).toString();
+        }
+    }
+}
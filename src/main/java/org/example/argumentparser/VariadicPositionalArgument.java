@@ -0,0 +1,25 @@
+package org.example.argumentparser;
+
+// Collects every argument after the fixed positional arguments, xargs style. Its values are streamed: once
+// the first of them is reached parsing stops, and the rest of the command line is only read as the values
+// are consumed. From that point on nothing is interpreted as a flag, and a value of "-" stands for the lines
+// of standard input.
+public class VariadicPositionalArgument {
+
+    private final String name;
+    private final String description;
+
+    public VariadicPositionalArgument(String name, String description) {
+        this.name = name;
+        this.description = description;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public String getDescription() {
+        return description;
+    }
+
+}
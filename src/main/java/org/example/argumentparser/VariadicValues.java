@@ -0,0 +1,76 @@
+package org.example.argumentparser;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+// Lazily reads the values of a variadic positional argument from the rest of the command line, starting with
+// the token the cursor is on. Closes the cursor once it is exhausted.
+final class VariadicValues implements Iterator<String>, AutoCloseable {
+
+    private static final String STANDARD_INPUT = "-";
+
+    private final ArgumentCursor arguments;
+    private boolean onCurrentToken = true;
+    private boolean exhausted = false;
+    private BufferedReader standardInput;
+    private String next;
+
+    VariadicValues(ArgumentCursor arguments) {
+        this.arguments = arguments;
+    }
+
+    @Override
+    public boolean hasNext() {
+        while (next == null && !exhausted) {
+            if (standardInput != null) {
+                next = readLine();
+                if (next == null) {
+                    standardInput = null;
+                }
+                continue;
+            }
+            if (!onCurrentToken && !arguments.advance()) {
+                close();
+                continue;
+            }
+            onCurrentToken = false;
+            var token = arguments.tokenString();
+            if (token.equals(STANDARD_INPUT)) {
+                standardInput = new BufferedReader(new InputStreamReader(System.in, StandardCharsets.UTF_8));
+            } else {
+                next = token;
+            }
+        }
+        return next != null;
+    }
+
+    @Override
+    public String next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+        var value = next;
+        next = null;
+        return value;
+    }
+
+    @Override
+    public void close() {
+        exhausted = true;
+        standardInput = null;
+        arguments.close();
+    }
+
+    private String readLine() {
+        try {
+            return standardInput.readLine();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
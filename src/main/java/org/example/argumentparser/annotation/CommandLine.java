@@ -0,0 +1,18 @@
+package org.example.argumentparser.annotation;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+// Marks an options class whose @Option and @Positional fields ParserProcessor turns into a generated parser,
+// named after the class with a "Parser" suffix. The class needs a no-argument constructor, and the annotated
+// fields must be neither private, static nor final.
+@Retention(RetentionPolicy.SOURCE)
+@Target(ElementType.TYPE)
+public @interface CommandLine {
+
+    String programName();
+
+    String description() default "";
+}
@@ -0,0 +1,26 @@
+package org.example.argumentparser.annotation;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+// A flag of a @CommandLine class. A boolean field is a flag without a value; String, int, long and double
+// fields take one. Without a short or long name the field name is used as the long name. A flag that does not
+// appear leaves the field as it was initialized, unless it has a default value.
+@Retention(RetentionPolicy.SOURCE)
+@Target(ElementType.FIELD)
+public @interface Option {
+
+    String NO_DEFAULT_VALUE = "\u0000";
+
+    String shortName() default "";
+
+    String longName() default "";
+
+    String description();
+
+    boolean required() default false;
+
+    String defaultValue() default NO_DEFAULT_VALUE;
+}
@@ -0,0 +1,17 @@
+package org.example.argumentparser.annotation;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+// A String positional argument of a @CommandLine class, in field declaration order. Without a name the field
+// name is used.
+@Retention(RetentionPolicy.SOURCE)
+@Target(ElementType.FIELD)
+public @interface Positional {
+
+    String name() default "";
+
+    String description();
+}
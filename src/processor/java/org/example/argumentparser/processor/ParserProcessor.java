@@ -0,0 +1,447 @@
+package org.example.argumentparser.processor;
+
+import org.example.argumentparser.ArgumentParserBuilder;
+import org.example.argumentparser.Flag;
+import org.example.argumentparser.FlagBuilder;
+import org.example.argumentparser.PositionalArgument;
+import org.example.argumentparser.annotation.CommandLine;
+import org.example.argumentparser.annotation.Option;
+import org.example.argumentparser.annotation.Positional;
+
+import javax.annotation.processing.AbstractProcessor;
+import javax.annotation.processing.RoundEnvironment;
+import javax.annotation.processing.SupportedAnnotationTypes;
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.*;
+import javax.lang.model.type.TypeKind;
+import javax.tools.Diagnostic;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.StringJoiner;
+
+// Generates a parser for every @CommandLine class at compile time. Flag names are checked by the same
+// FlagBuilder and ArgumentParserBuilder rules that apply at runtime, and the usage text is rendered by
+// ArgumentParser itself, so a generated parser and a built one accept the same command lines and print the
+// same usage. The generated parser is a switch over the flag names writing straight into the typed fields;
+// it uses no reflection and initializes nothing but its usage string.
+@SupportedAnnotationTypes("org.example.argumentparser.annotation.CommandLine")
+public final class ParserProcessor extends AbstractProcessor {
+
+    private enum ValueType { NONE, STRING, INT, LONG, DOUBLE }
+
+    private static final class OptionField {
+        private final VariableElement field;
+        private final ValueType valueType;
+        private final Flag flag;
+        private final Object defaultValue;
+
+        private OptionField(VariableElement field, ValueType valueType, Flag flag, Object defaultValue) {
+            this.field = field;
+            this.valueType = valueType;
+            this.flag = flag;
+            this.defaultValue = defaultValue;
+        }
+
+        private String name() {
+            return flag.getLongName().isPresent() ? flag.getLongName().get() : flag.getOptionalShortName().get();
+        }
+    }
+
+    @Override
+    public SourceVersion getSupportedSourceVersion() {
+        return SourceVersion.latestSupported();
+    }
+
+    @Override
+    public boolean process(Set<? extends TypeElement> annotations, RoundEnvironment roundEnvironment) {
+        for (Element element : roundEnvironment.getElementsAnnotatedWith(CommandLine.class)) {
+            if (element.getKind() != ElementKind.CLASS || element.getEnclosingElement().getKind() != ElementKind.PACKAGE) {
+                error(element, "@CommandLine must annotate a top-level class");
+                continue;
+            }
+            try {
+                generate((TypeElement) element);
+            } catch (IOException e) {
+                error(element, "Cannot write the generated parser: " + e.getMessage());
+            }
+        }
+        return true;
+    }
+
+    private void generate(TypeElement type) throws IOException {
+        var commandLine = type.getAnnotation(CommandLine.class);
+        var builder = ArgumentParserBuilder.newBuilder(commandLine.programName());
+        if (!commandLine.description().isEmpty()) {
+            builder.setProgramDescription(commandLine.description());
+        }
+
+        boolean valid = hasNoArgumentConstructor(type);
+        var options = new ArrayList<OptionField>();
+        var positionals = new ArrayList<VariableElement>();
+        for (Element member : type.getEnclosedElements()) {
+            var option = member.getAnnotation(Option.class);
+            var positional = member.getAnnotation(Positional.class);
+            if (option == null && positional == null) {
+                continue;
+            }
+            var field = (VariableElement) member;
+            if (!isWritable(field)) {
+                valid = false;
+                continue;
+            }
+            try {
+                if (option != null) {
+                    var optionField = optionField(field, option);
+                    builder.addFlag(optionField.flag);
+                    options.add(optionField);
+                } else if (isString(field)) {
+                    builder.addPositionalArgument(new PositionalArgument(positionalName(field),
+                            positional.description()));
+                    positionals.add(field);
+                } else {
+                    error(field, "@Positional fields must be Strings");
+                    valid = false;
+                }
+            } catch (IllegalArgumentException | IllegalStateException e) {
+                error(field, e.getMessage());
+                valid = false;
+            }
+        }
+        if (!valid) {
+            return;
+        }
+
+        var usage = builder.build().usage();
+        var packageName = processingEnv.getElementUtils().getPackageOf(type).getQualifiedName().toString();
+        var parserName = type.getSimpleName() + "Parser";
+        var qualifiedName = packageName.isEmpty() ? parserName : packageName + "." + parserName;
+        var source = new ParserSource(packageName, type.getSimpleName().toString(), parserName, usage);
+        try (var writer = processingEnv.getFiler().createSourceFile(qualifiedName, type).openWriter()) {
+            writer.write(source.write(options, positionals));
+        }
+    }
+
+    private OptionField optionField(VariableElement field, Option option) {
+        var shortName = option.shortName();
+        var longName = option.longName().isEmpty() && shortName.isEmpty()
+                ? field.getSimpleName().toString()
+                : option.longName();
+        var flagBuilder = shortName.isEmpty()
+                ? FlagBuilder.newLongNameBuilder(longName, option.description())
+                : FlagBuilder.newBuilder(shortName, option.description());
+        if (!shortName.isEmpty() && !longName.isEmpty()) {
+            flagBuilder = flagBuilder.useLongName(longName);
+        }
+
+        var valueType = valueType(field);
+        boolean hasDefaultValue = !option.defaultValue().equals(Option.NO_DEFAULT_VALUE);
+        if (valueType == null) {
+            throw new IllegalArgumentException("@Option fields must be boolean, String, int, long or double");
+        }
+        if (option.required() && hasDefaultValue) {
+            throw new IllegalArgumentException("A required flag cannot have a default value");
+        }
+        if (valueType == ValueType.NONE) {
+            if (option.required() || hasDefaultValue) {
+                throw new IllegalArgumentException("A boolean flag can be neither required nor have a default value");
+            }
+            return new OptionField(field, valueType, flagBuilder.build(), null);
+        }
+
+        var valueBuilder = flagBuilder.requireValue();
+        if (!hasDefaultValue) {
+            // The generated parser converts the value itself; this flag only stands for it in the usage text.
+            var flag = option.required() ? valueBuilder.mustAppear().build() : valueBuilder.build();
+            return new OptionField(field, valueType, flag, null);
+        }
+        var rawDefault = option.defaultValue();
+        try {
+            switch (valueType) {
+                case INT:
+                    var intDefault = Integer.parseInt(rawDefault);
+                    return new OptionField(field, valueType, valueBuilder.useIntValue(intDefault).build(), intDefault);
+                case LONG:
+                    var longDefault = Long.parseLong(rawDefault);
+                    return new OptionField(field, valueType, valueBuilder.useLongValue(longDefault).build(), longDefault);
+                case DOUBLE:
+                    var doubleDefault = Double.parseDouble(rawDefault);
+                    return new OptionField(field, valueType, valueBuilder.useDoubleValue(doubleDefault).build(),
+                            doubleDefault);
+                default:
+                    return new OptionField(field, valueType, valueBuilder.useDefaultValue(rawDefault).build(),
+                            rawDefault);
+            }
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Invalid default value: " + rawDefault);
+        }
+    }
+
+    private ValueType valueType(VariableElement field) {
+        switch (field.asType().getKind()) {
+            case BOOLEAN:
+                return ValueType.NONE;
+            case INT:
+                return ValueType.INT;
+            case LONG:
+                return ValueType.LONG;
+            case DOUBLE:
+                return ValueType.DOUBLE;
+            default:
+                return isString(field) ? ValueType.STRING : null;
+        }
+    }
+
+    private static String positionalName(Element field) {
+        var positional = field.getAnnotation(Positional.class);
+        return positional.name().isEmpty() ? field.getSimpleName().toString() : positional.name();
+    }
+
+    private boolean isString(VariableElement field) {
+        return field.asType().getKind() == TypeKind.DECLARED
+                && field.asType().toString().equals(String.class.getName());
+    }
+
+    private boolean isWritable(VariableElement field) {
+        var modifiers = field.getModifiers();
+        if (modifiers.contains(Modifier.PRIVATE) || modifiers.contains(Modifier.STATIC)
+                || modifiers.contains(Modifier.FINAL)) {
+            error(field, "Annotated fields must be neither private, static nor final");
+            return false;
+        }
+        return true;
+    }
+
+    private boolean hasNoArgumentConstructor(TypeElement type) {
+        for (Element member : type.getEnclosedElements()) {
+            if (member.getKind() == ElementKind.CONSTRUCTOR
+                    && ((ExecutableElement) member).getParameters().isEmpty()
+                    && !member.getModifiers().contains(Modifier.PRIVATE)) {
+                return true;
+            }
+        }
+        error(type, "@CommandLine classes need a non-private constructor without arguments");
+        return false;
+    }
+
+    private void error(Element element, String message) {
+        processingEnv.getMessager().printMessage(Diagnostic.Kind.ERROR, message, element);
+    }
+
+    // Writes the source of one generated parser.
+    private static final class ParserSource {
+        private final String packageName;
+        private final String optionsName;
+        private final String parserName;
+        private final String usage;
+        private final StringBuilder out = new StringBuilder();
+
+        private ParserSource(String packageName, String optionsName, String parserName, String usage) {
+            this.packageName = packageName;
+            this.optionsName = optionsName;
+            this.parserName = parserName;
+            this.usage = usage;
+        }
+
+        private String write(List<OptionField> options, List<VariableElement> positionals) {
+            if (!packageName.isEmpty()) {
+                line(0, "package " + packageName + ";");
+                line(0, "");
+            }
+            line(0, "import org.example.argumentparser.GeneratedParsers;");
+            line(0, "");
+            line(0, "// Generated by " + ParserProcessor.class.getName() + " from " + optionsName + ". Do not edit.");
+            line(0, "@javax.annotation.processing.Generated(\"" + ParserProcessor.class.getName() + "\")");
+            line(0, "public final class " + parserName + " {");
+            line(0, "");
+            line(1, "private static final String USAGE = " + literal(usage) + ";");
+            var longNames = new StringJoiner(", ");
+            for (OptionField option : options) {
+                option.flag.getLongName().ifPresent(longName -> longNames.add(literal(longName)));
+            }
+            line(1, "private static final String[] LONG_NAMES = {" + longNames + "};");
+            var positionalNames = new StringJoiner(", ");
+            for (Element positional : positionals) {
+                positionalNames.add(literal(positionalName(positional)));
+            }
+            line(1, "private static final String[] POSITIONAL_NAMES = {" + positionalNames + "};");
+            var requiredOrdinals = new StringJoiner(", ");
+            var requiredNames = new StringJoiner(", ");
+            for (int ordinal = 0; ordinal < options.size(); ordinal++) {
+                if (options.get(ordinal).field.getAnnotation(Option.class).required()) {
+                    requiredOrdinals.add(Integer.toString(ordinal));
+                    requiredNames.add(literal(options.get(ordinal).name()));
+                }
+            }
+            line(1, "private static final int[] REQUIRED_ORDINALS = {" + requiredOrdinals + "};");
+            line(1, "private static final String[] REQUIRED_NAMES = {" + requiredNames + "};");
+            line(0, "");
+            line(1, "private " + parserName + "() {");
+            line(1, "}");
+            line(0, "");
+            line(1, "public static String usage() {");
+            line(2, "return USAGE;");
+            line(1, "}");
+            line(0, "");
+            line(1, "public static " + optionsName + " parse(String[] args) {");
+            line(2, "var options = parseUnlessHelp(args);");
+            line(2, "if (options == null) {");
+            line(3, "GeneratedParsers.printHelpAndExit(USAGE);");
+            line(2, "}");
+            line(2, "return options;");
+            line(1, "}");
+            line(0, "");
+            line(1, "// Returns null rather than printing the usage and exiting when help is asked for.");
+            line(1, "public static " + optionsName + " parseUnlessHelp(String[] args) {");
+            line(2, "var rawValues = new String[" + options.size() + "];");
+            line(2, "var appeared = new boolean[" + options.size() + "];");
+            line(2, "var positionalValues = new String[" + positionals.size() + "];");
+            line(2, "int positionalCount = 0;");
+            line(2, "RuntimeException failure = null;");
+            line(2, "int pendingValue = -1;");
+            line(2, "String pendingFlag = null;");
+            line(2, "for (String arg : args) {");
+            line(3, "if (GeneratedParsers.isHelp(arg)) {");
+            line(4, "return null;");
+            line(3, "}");
+            line(3, "if (failure != null) {");
+            line(4, "continue;");
+            line(3, "}");
+            line(3, "if (pendingValue >= 0) {");
+            line(4, "rawValues[pendingValue] = arg;");
+            line(4, "pendingValue = -1;");
+            line(4, "continue;");
+            line(3, "}");
+            line(3, "switch (arg) {");
+            for (int ordinal = 0; ordinal < options.size(); ordinal++) {
+                var flag = options.get(ordinal).flag;
+                if (flag.getOptionalShortName().isPresent()) {
+                    line(4, "case " + literal("-" + flag.getOptionalShortName().get()) + ":");
+                }
+                if (flag.getLongName().isPresent()) {
+                    line(4, "case " + literal("--" + flag.getLongName().get()) + ":");
+                }
+                line(5, "appeared[" + ordinal + "] = true;");
+                if (options.get(ordinal).valueType != ValueType.NONE) {
+                    line(5, "pendingValue = " + ordinal + ";");
+                    line(5, "pendingFlag = arg;");
+                }
+                line(5, "break;");
+            }
+            line(4, "default:");
+            line(5, "if (GeneratedParsers.isFlagName(arg)) {");
+            line(6, "failure = GeneratedParsers.unknownFlag(arg, LONG_NAMES);");
+            line(5, "} else if (positionalCount == positionalValues.length) {");
+            line(6, "failure = GeneratedParsers.unrecognizedPositional(arg);");
+            line(5, "} else {");
+            line(6, "positionalValues[positionalCount++] = arg;");
+            line(5, "}");
+            line(3, "}");
+            line(2, "}");
+            line(2, "if (failure == null && pendingValue >= 0) {");
+            line(3, "failure = GeneratedParsers.missingValue(pendingFlag);");
+            line(2, "}");
+            line(2, "if (failure != null) {");
+            line(3, "throw failure;");
+            line(2, "}");
+            line(0, "");
+            line(2, "var options = new " + optionsName + "();");
+            for (int ordinal = 0; ordinal < options.size(); ordinal++) {
+                writeConversion(ordinal, options.get(ordinal));
+            }
+            line(2, "GeneratedParsers.checkComplete(positionalCount, POSITIONAL_NAMES, appeared, REQUIRED_ORDINALS, "
+                    + "REQUIRED_NAMES);");
+            for (int index = 0; index < positionals.size(); index++) {
+                line(2, "options." + positionals.get(index).getSimpleName() + " = positionalValues[" + index + "];");
+            }
+            line(2, "return options;");
+            line(1, "}");
+            line(0, "}");
+            return out.toString();
+        }
+
+        private void writeConversion(int ordinal, OptionField option) {
+            var target = "options." + option.field.getSimpleName();
+            if (option.valueType == ValueType.NONE) {
+                line(2, "if (appeared[" + ordinal + "]) {");
+                line(3, target + " = true;");
+                line(2, "}");
+                return;
+            }
+            var rawValue = "rawValues[" + ordinal + "]";
+            String converted;
+            switch (option.valueType) {
+                case INT:
+                    converted = "GeneratedParsers.toInt(" + literal(option.name()) + ", " + rawValue + ")";
+                    break;
+                case LONG:
+                    converted = "GeneratedParsers.toLong(" + literal(option.name()) + ", " + rawValue + ")";
+                    break;
+                case DOUBLE:
+                    converted = "GeneratedParsers.toDouble(" + literal(option.name()) + ", " + rawValue + ")";
+                    break;
+                default:
+                    converted = rawValue;
+            }
+            line(2, "if (" + rawValue + " != null) {");
+            line(3, target + " = " + converted + ";");
+            if (option.defaultValue != null) {
+                line(2, "} else {");
+                line(3, target + " = " + constant(option.defaultValue) + ";");
+            }
+            line(2, "}");
+        }
+
+        private void line(int indent, String text) {
+            if (!text.isEmpty()) {
+                out.append("    ".repeat(indent)).append(text);
+            }
+            out.append('\n');
+        }
+
+        private static String constant(Object value) {
+            if (value instanceof String) {
+                return literal((String) value);
+            }
+            if (value instanceof Long) {
+                return value + "L";
+            }
+            if (value instanceof Double) {
+                return "Double.longBitsToDouble(" + Double.doubleToRawLongBits((Double) value) + "L)";
+            }
+            return String.valueOf(value);
+        }
+
+        private static String literal(String value) {
+            var literal = new StringBuilder("\"");
+            for (int i = 0; i < value.length(); i++) {
+                char c = value.charAt(i);
+                switch (c) {
+                    case '"':
+                        literal.append("\\\"");
+                        break;
+                    case '\\':
+                        literal.append("\\\\");
+                        break;
+                    case '\n':
+                        literal.append("\\n");
+                        break;
+                    case '\r':
+                        literal.append("\\r");
+                        break;
+                    case '\t':
+                        literal.append("\\t");
+                        break;
+                    default:
+                        if (c < ' ' || c > '~') {
+                            literal.append(String.format("\\u%04x", (int) c));
+                        } else {
+                            literal.append(c);
+                        }
+                }
+            }
+            return literal.append('"').toString();
+        }
+    }
+}
@@ -0,0 +1,144 @@
+package org.example.argumentparser.test;
+
+import org.example.argumentparser.*;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.lang.management.ManagementFactory;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+// Bytes allocated per parse and per usage call on representative schemas, measured with the allocation counter
+// of the current thread once the JIT has settled. A budget is roughly one and a half times what the code
+// allocated when it was set; raise it only together with the change that needs the extra garbage.
+// Tagged so that the build runs it in a JVM of its own: type profiles left by other tests stop escape
+// analysis and would make the numbers depend on test order.
+@Tag("allocation")
+class AllocationBudgetTest {
+
+    private static final int ROUNDS = 5;
+
+    private static volatile Object sink;
+
+    private static com.sun.management.ThreadMXBean threads;
+
+    @BeforeAll
+    public static void setUpAll() {
+        var bean = ManagementFactory.getThreadMXBean();
+        assumeTrue(bean instanceof com.sun.management.ThreadMXBean, "No per-thread allocation counter.");
+        threads = (com.sun.management.ThreadMXBean) bean;
+        assumeTrue(threads.isThreadAllocatedMemorySupported(), "No per-thread allocation counter.");
+        threads.setThreadAllocatedMemoryEnabled(true);
+    }
+
+    @Test
+    public void mainSchema() {
+        var certFile = FlagBuilder.newBuilder("-c", "The certificate file.")
+                .useLongName("--cert_file")
+                .requireValue()
+                .mustAppear()
+                .build();
+        var age = FlagBuilder.newBuilder("-a", "Age of your pet.")
+                .useLongName("--age")
+                .requireValue()
+                .useConverter(Integer::parseInt)
+                .build();
+        var dard = FlagBuilder.newBuilder("-d", "Darde.").useLongName("--dard").build();
+        var frankie = FlagBuilder.newBuilder("-f", "Frankkkkiiieeee....")
+                .useLongName("--frank")
+                .requireValue()
+                .useDefaultValue("Meow!")
+                .build();
+        var levi = FlagBuilder.newBuilder("-l", "Levi's haddi location")
+                .useLongName("--levi")
+                .requireValue()
+                .build();
+        var parser = ArgumentParserBuilder.newBuilder("haddis")
+                .setProgramDescription("cool program")
+                .addFlags(certFile, age, dard, levi, frankie)
+                .addPositionalArguments(new PositionalArgument("src", "source file location"),
+                        new PositionalArgument("destination", "destination file location"))
+                .build();
+        var args = new String[]{"--cert_file", "~/.ssh/cert_file", "-a", "7", "-d", "~/source_file", "~/dest"};
+
+        assertWithinBudget("parse, Main schema", 600, 2_000, () -> sink = parser.parse(args));
+        // The unwrapped usage is laid out once, on first use.
+        assertWithinBudget("usage, Main schema", 16, 2_000, () -> sink = parser.usage());
+        assertWithinBudget("wrapped usage, Main schema", 2_500, 2_000, () -> sink = wrappedUsage(parser));
+    }
+
+    @Test
+    public void thousandFlags() {
+        var parser = ArgumentParserBuilder.newBuilder("many").addFlags(flags(1_000)).build();
+        var args = new String[100];
+        for (int i = 0; i < args.length; i += 2) {
+            args[i] = "--" + longName(i * 7 + 1);
+            args[i + 1] = "value_" + i;
+        }
+
+        assertWithinBudget("parse, 1k flags", 12_500, 2_000, () -> sink = parser.parse(args));
+        assertWithinBudget("usage, 1k flags", 16, 2_000, () -> sink = parser.usage());
+        assertWithinBudget("wrapped usage, 1k flags", 480_000, 200, () -> sink = wrappedUsage(parser));
+    }
+
+    @Test
+    public void tenThousandTokens() {
+        var parser = ArgumentParserBuilder.newBuilder("many").addFlags(flags(1_000)).build();
+        var args = new String[10_000];
+        // A switch, then a flag with its value, over and over.
+        for (int i = 0; i + 2 < args.length; i += 3) {
+            args[i] = "--" + longName(i % 1_000 / 2 * 2);
+            args[i + 1] = "--" + longName(i % 1_000 / 2 * 2 + 1);
+            args[i + 2] = "value_" + i;
+        }
+        args[args.length - 1] = "--" + longName(0);
+
+        assertWithinBudget("parse, 10k tokens", 12_500, 200, () -> sink = parser.parse(args));
+    }
+
+    private static StringBuilder wrappedUsage(ArgumentParser parser) {
+        var out = new StringBuilder();
+        try {
+            parser.printUsage(out, 80);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return out;
+    }
+
+    // Flags with an even ordinal are switches, flags with an odd ordinal take a value.
+    private static Flag[] flags(int count) {
+        var flags = new Flag[count];
+        for (int i = 0; i < count; i++) {
+            var builder = FlagBuilder.newLongNameBuilder("--" + longName(i), "Generated flag number " + i + ".");
+            flags[i] = i % 2 == 0 ? builder.build() : builder.requireValue().build();
+        }
+        return flags;
+    }
+
+    private static String longName(int ordinal) {
+        return String.format("flag_%05d", ordinal);
+    }
+
+    // The least of a few rounds, so that a collection or a late compilation in one round does not count.
+    private static void assertWithinBudget(String name, long budget, int callsPerRound, Runnable call) {
+        for (int i = 0; i < 10 * callsPerRound; i++) {
+            call.run();
+        }
+        long threadId = Thread.currentThread().getId();
+        long least = Long.MAX_VALUE;
+        for (int round = 0; round < ROUNDS; round++) {
+            long before = threads.getThreadAllocatedBytes(threadId);
+            for (int i = 0; i < callsPerRound; i++) {
+                call.run();
+            }
+            long after = threads.getThreadAllocatedBytes(threadId);
+            least = Math.min(least, (after - before) / callsPerRound);
+        }
+        assertTrue(least <= budget, name + " allocates " + least + " bytes per call, over its budget of " + budget);
+    }
+}
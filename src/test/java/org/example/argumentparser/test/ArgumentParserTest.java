@@ -1,9 +1,25 @@
 package org.example.argumentparser.test;
 
 import org.example.argumentparser.*;
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordingFile;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 
+import java.io.ByteArrayInputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
 import static org.junit.jupiter.api.Assertions.*;
 
 class ArgumentParserTest {
@@ -57,16 +73,16 @@ class ArgumentParserTest {
                 "~/source_file",
                 "~/dest_folder",
         };
-        parser.parse(args);
+        var result = parser.parse(args);
 
 
 
-        assertEquals("~/.ssh/cert_file", certFile.getValue());
-        assertEquals("~/source_file", src.getValue());
-        assertEquals("~/dest_folder", dst.getValue());
-        assertFalse(dard.hasAppeared());
-        assertEquals(frankie.getValue(), "Meow!");
-        assertTrue(levi.getValue().isEmpty());
+        assertEquals("~/.ssh/cert_file", result.getValue(certFile));
+        assertEquals("~/source_file", result.getValue(src));
+        assertEquals("~/dest_folder", result.getValue(dst));
+        assertFalse(result.hasAppeared(dard));
+        assertEquals(result.getValue(frankie), "Meow!");
+        assertTrue(result.getValue(levi).isEmpty());
     }
 
     @Test
@@ -76,4 +92,1073 @@ class ArgumentParserTest {
         });
     }
 
-}
\ No newline at end of file
+    @Test
+    public void unknownFlag() {
+        assertThrows(IllegalArgumentException.class, () -> {
+            parser.parse(new String[]{"--cert_file", "cert", "--bogus", "src", "dst"});
+        });
+    }
+
+    @Test
+    public void missingFlagValue() {
+        assertThrows(IllegalArgumentException.class, () -> {
+            parser.parse(new String[]{"src", "dst", "-c"});
+        });
+    }
+
+    @Test
+    public void malformedFlagIsPositional() {
+        var args = new String[] {
+                "-c",
+                "cert",
+                "-cd",
+                "--x",
+        };
+        var result = parser.parse(args);
+
+        assertEquals("-cd", result.getValue(src));
+        assertEquals("--x", result.getValue(dst));
+    }
+
+    @Test
+    public void parserIsReusable() {
+        var first = parser.parse(new String[]{"-c", "first", "-d", "src1", "dst1"});
+        var second = parser.parse(new String[]{"-c", "second", "-f", "Woof!", "src2", "dst2"});
+
+        assertEquals("first", first.getValue(certFile));
+        assertTrue(first.hasAppeared(dard));
+        assertEquals("Meow!", first.getValue(frankie));
+        assertEquals("src1", first.getValue(src));
+
+        assertEquals("second", second.getValue(certFile));
+        assertFalse(second.hasAppeared(dard));
+        assertEquals("Woof!", second.getValue(frankie));
+        assertEquals("dst2", second.getValue(dst));
+    }
+
+    @Test
+    public void unregisteredFlag() {
+        var result = parser.parse(new String[]{"-c", "cert", "src", "dst"});
+        var other = FlagBuilder.newBuilder("-o", "Other.").build();
+
+        assertThrows(IllegalArgumentException.class, () -> {
+            result.hasAppeared(other);
+        });
+    }
+
+    @Test
+    public void longNameOnlyFlag() {
+        var verbose = FlagBuilder.newLongNameBuilder("--verbose", "Talk a lot.").build();
+        var longOnlyParser = ArgumentParserBuilder.newBuilder("haddis")
+                .addFlags(certFile, verbose)
+                .build();
+
+        var result = longOnlyParser.parse(new String[]{"--verbose", "-c", "cert"});
+
+        assertTrue(result.hasAppeared(verbose));
+        assertTrue(verbose.getOptionalShortName().isEmpty());
+        assertThrows(IllegalStateException.class, verbose::getShortName);
+        assertEquals("c", certFile.getShortName());
+        assertTrue(longOnlyParser.usage().contains("--verbose"));
+    }
+
+    @Test
+    public void duplicateNames() {
+        var builder = ArgumentParserBuilder.newBuilder("haddis").addFlags(certFile, dard);
+
+        assertThrows(IllegalStateException.class, () -> {
+            builder.addFlag(FlagBuilder.newBuilder("-c", "Another c.").build());
+        });
+        assertThrows(IllegalStateException.class, () -> {
+            builder.addFlag(FlagBuilder.newLongNameBuilder("--dard", "Another dard.").build());
+        });
+    }
+
+    @Test
+    public void manyLongNames() {
+        var builder = ArgumentParserBuilder.newBuilder("many");
+        var flags = new Flag.OptionalFlagWithValue<?>[5000];
+        for (int i = 0; i < flags.length; i++) {
+            flags[i] = FlagBuilder.newLongNameBuilder("--flag_" + i, "Flag " + i + ".").requireValue().build();
+            builder.addFlag(flags[i]);
+        }
+        var manyParser = builder.build();
+
+        var result = manyParser.parse(new String[]{"--flag_0", "zero", "--flag_4999", "last", "--flag_2500", "mid"});
+
+        assertEquals("zero", result.getValue(flags[0]).orElseThrow());
+        assertEquals("mid", result.getValue(flags[2500]).orElseThrow());
+        assertEquals("last", result.getValue(flags[4999]).orElseThrow());
+        assertTrue(result.getValue(flags[1]).isEmpty());
+        assertThrows(IllegalArgumentException.class, () -> {
+            manyParser.parse(new String[]{"--flag_5000", "x"});
+        });
+    }
+
+    @Test
+    public void wrappedAndPagedUsage() throws Exception {
+        var wrapped = new StringBuilder();
+        parser.printUsage(wrapped, 30);
+
+        for (String line : wrapped.toString().split("\n")) {
+            assertTrue(line.length() <= 30, line);
+        }
+        assertEquals(parser.usage().replaceAll("\\s+", " "), wrapped.toString().replaceAll("\\s+", " "));
+
+        var paged = new StringBuilder();
+        parser.printUsage(paged, 0, 3, () -> false);
+
+        assertEquals(3, paged.chars().filter(c -> c == '\n').count());
+        assertTrue(parser.usage().startsWith(paged.toString()));
+    }
+
+    @Test
+    public void lazyConversion() {
+        var conversions = new AtomicInteger();
+        var port = FlagBuilder.newBuilder("-p", "Port.")
+                .requireValue()
+                .useConverter(value -> {
+                    conversions.incrementAndGet();
+                    return Integer.parseInt(value);
+                })
+                .convertLazily()
+                .build();
+        var lazyParser = ArgumentParserBuilder.newBuilder("haddis").addFlags(port).build();
+
+        var result = lazyParser.parse(new String[]{"-p", "8080"});
+        assertEquals(0, conversions.get());
+        assertEquals(8080, result.getValue(port).orElseThrow());
+        assertEquals(8080, result.getValue(port).orElseThrow());
+        assertEquals(1, conversions.get());
+
+        var invalid = lazyParser.parse(new String[]{"-p", "http"});
+        var failure = assertThrows(IllegalArgumentException.class, () -> invalid.getValue(port));
+        assertEquals("Invalid value for flag p: http", failure.getMessage());
+        assertTrue(failure.getCause() instanceof NumberFormatException);
+        assertThrows(IllegalArgumentException.class, () -> invalid.getValue(port));
+        assertEquals(2, conversions.get());
+    }
+
+    @Test
+    public void primitiveFlags() {
+        var threads = FlagBuilder.newBuilder("-t", "Worker threads.").requireValue().useIntValue(4).build();
+        var bytes = FlagBuilder.newLongNameBuilder("--max_bytes", "Byte limit.").requireValue()
+                .useLongValue(1L << 20).build();
+        var ratio = FlagBuilder.newBuilder("-r", "Sample ratio.").useLongName("--ratio").requireValue()
+                .useDoubleValue(0.5).build();
+        var primitiveParser = ArgumentParserBuilder.newBuilder("haddis").addFlags(threads, bytes, ratio).build();
+
+        var defaults = primitiveParser.parse(new String[]{});
+        assertEquals(4, defaults.getInt(threads));
+        assertEquals(1L << 20, defaults.getLong(bytes));
+        assertEquals(0.5, defaults.getDouble(ratio));
+
+        var result = primitiveParser.parse(new String[]{"-t", "16", "--max_bytes", "17179869184", "--ratio", "0.125"});
+        assertEquals(16, result.getInt(threads));
+        assertEquals(17179869184L, result.getLong(bytes));
+        assertEquals(0.125, result.getDouble(ratio));
+        assertTrue(primitiveParser.usage().contains("(default=4)"));
+
+        assertThrows(IllegalArgumentException.class, () -> {
+            primitiveParser.parse(new String[]{"-t", "many"});
+        });
+        assertThrows(IllegalStateException.class, () -> FlagBuilder.newBuilder("-t", "Worker threads.").requireValue()
+                .useConverter(Integer::valueOf).useIntValue(4));
+        assertThrows(IllegalStateException.class, () -> FlagBuilder.newBuilder("-t", "Worker threads.").requireValue()
+                .convertLazily().useDoubleValue(4));
+    }
+
+    @Test
+    public void responseFiles() throws Exception {
+        var file = Files.createTempFile("haddis", ".args");
+        try {
+            Files.writeString(file, "# the cert\n"
+                    + "--cert_file \"/home/l\u00e9vi/my \\\"cert\\\"\"\r\n"
+                    + "  -l 'C:\\Users\\levi'\t--frank=\"\" \n");
+            var fileParser = ArgumentParserBuilder.newBuilder("haddis")
+                    .addFlags(certFile, dard, levi, frankie)
+                    .addPositionalArguments(src, dst)
+                    .expandResponseFiles()
+                    .build();
+
+            var result = fileParser.parse(new String[]{"-d", "@" + file, "@@src"});
+
+            assertEquals("/home/l\u00e9vi/my \"cert\"", result.getValue(certFile));
+            assertEquals("C:\\Users\\levi", result.getValue(levi).orElseThrow());
+            assertEquals("--frank=", result.getValue(src));
+            assertEquals("@src", result.getValue(dst));
+            assertTrue(result.hasAppeared(dard));
+
+            assertThrows(IllegalArgumentException.class, () -> {
+                fileParser.parse(new String[]{"@" + file + ".missing"});
+            });
+            Files.writeString(file, "-c 'open");
+            assertThrows(IllegalArgumentException.class, () -> {
+                fileParser.parse(new String[]{"@" + file});
+            });
+        } finally {
+            Files.delete(file);
+        }
+    }
+
+    @Test
+    public void variadicPositionalArgument() {
+        var files = new VariadicPositionalArgument("files", "Files to copy");
+        var variadicParser = ArgumentParserBuilder.newBuilder("haddis")
+                .addFlags(certFile, dard)
+                .addPositionalArguments(src)
+                .setVariadicPositionalArgument(files)
+                .build();
+
+        assertTrue(variadicParser.usage().contains("src files... "));
+        var result = variadicParser.parse(new String[]{"-c", "cert", "a", "b", "-d", "--cert_file", "c"});
+        assertFalse(result.hasAppeared(dard));
+        try (var values = result.streamValues(files)) {
+            assertEquals(List.of("b", "-d", "--cert_file", "c"), values.collect(Collectors.toList()));
+        }
+        assertThrows(IllegalStateException.class, () -> result.getValues(files));
+        assertFalse(variadicParser.parse(new String[]{"-c", "cert", "a"}).getValues(files).hasNext());
+        assertThrows(IllegalArgumentException.class, () -> {
+            parser.parse(new String[]{"-c", "cert", "a", "b"}).getValues(files);
+        });
+
+        var in = System.in;
+        try {
+            System.setIn(new ByteArrayInputStream("x\n\u00fd\n".getBytes(StandardCharsets.UTF_8)));
+            var values = variadicParser.parse(new String[]{"-c", "cert", "a", "b", "-", "z"}).streamValues(files);
+            assertEquals(List.of("b", "x", "\u00fd", "z"), values.collect(Collectors.toList()));
+        } finally {
+            System.setIn(in);
+        }
+    }
+
+    @Test
+    public void concurrentConversion() {
+        var started = new CountDownLatch(2);
+        Function<String, String> slow = value -> {
+            started.countDown();
+            try {
+                started.await();
+            } catch (InterruptedException e) {
+                throw new IllegalStateException(e);
+            }
+            return value.toUpperCase();
+        };
+        var keyStore = FlagBuilder.newLongNameBuilder("--key_store", "Key store")
+                .requireValue().useConverter(slow).build();
+        var trustStore = FlagBuilder.newLongNameBuilder("--trust_store", "Trust store")
+                .requireValue().useConverter(slow).build();
+        var concurrentParser = ArgumentParserBuilder.newBuilder("haddis")
+                .addFlags(keyStore, trustStore)
+                .convertConcurrently(Duration.ofSeconds(10))
+                .build();
+
+        // Each converter waits for the other, so this only finishes if they run at the same time.
+        var result = concurrentParser.parse(new String[]{"--key_store", "k", "--trust_store", "t"});
+        assertEquals("K", result.getValue(keyStore).orElseThrow());
+        assertEquals("T", result.getValue(trustStore).orElseThrow());
+
+        var unboundedParser = ArgumentParserBuilder.newBuilder("haddis")
+                .addFlags(keyStore, trustStore)
+                .convertConcurrently(Duration.ofSeconds(Long.MAX_VALUE))
+                .build();
+        var unbounded = unboundedParser.parse(new String[]{"--key_store", "k", "--trust_store", "t"});
+        assertEquals("K", unbounded.getValue(keyStore).orElseThrow());
+
+        Function<String, String> hangs = value -> {
+            try {
+                Thread.sleep(60_000);
+            } catch (InterruptedException e) {
+                throw new IllegalStateException(e);
+            }
+            return value;
+        };
+        var hanging = FlagBuilder.newLongNameBuilder("--hanging", "Hangs")
+                .requireValue().useConverter(hangs).build();
+        var failing = FlagBuilder.newLongNameBuilder("--failing", "Fails")
+                .requireValue().useConverter(Integer::parseInt).build();
+        var failFastParser = ArgumentParserBuilder.newBuilder("haddis")
+                .addFlags(hanging, failing)
+                .convertConcurrently(Duration.ofSeconds(10))
+                .build();
+        var failure = assertThrows(IllegalArgumentException.class, () -> {
+            failFastParser.parse(new String[]{"--hanging", "h", "--failing", "f"});
+        });
+        assertTrue(failure.getMessage().contains("failing"));
+
+        var slowParser = ArgumentParserBuilder.newBuilder("haddis")
+                .addFlags(hanging, failing)
+                .convertConcurrently(Duration.ofMillis(50))
+                .build();
+        assertThrows(IllegalStateException.class, () -> {
+            slowParser.parse(new String[]{"--hanging", "h", "--failing", "1"});
+        });
+    }
+
+    @Test
+    public void parseDaemon() throws Exception {
+        var directory = Files.createTempDirectory("haddis");
+        var socket = directory.resolve("haddis.sock");
+        try (var daemon = ParseDaemon.bind(socket, parser, result -> result.getValue(certFile) + "\n")) {
+            var serving = new Thread(() -> {
+                try {
+                    daemon.serve();
+                } catch (java.io.IOException e) {
+                    throw new java.io.UncheckedIOException(e);
+                }
+            });
+            serving.start();
+
+            var out = new StringBuilder();
+            var err = new StringBuilder();
+            assertEquals(0, ParseClient.run(socket, new String[]{"-c", "cert", "a", "b"}, 0, out, err));
+            assertEquals("cert\n", out.toString());
+
+            out.setLength(0);
+            assertEquals(0, ParseClient.run(socket, new String[]{"--help"}, 0, out, err));
+            assertEquals(parser.usage() + "\n", out.toString());
+
+            out.setLength(0);
+            assertEquals(2, ParseClient.run(socket, new String[]{"-q"}, 0, out, err));
+            assertEquals("", out.toString());
+            assertTrue(err.toString().startsWith("Invalid short name encountered: q\n\n"));
+
+            daemon.close();
+            serving.join(10_000);
+            assertFalse(serving.isAlive());
+        } finally {
+            Files.deleteIfExists(socket);
+            Files.delete(directory);
+        }
+    }
+
+    @Test
+    public void parseDaemonErrors() throws Exception {
+        var message = FlagBuilder.newBuilder("-m", "Commit message.").requireValue().mustAppear().build();
+        var commit = ArgumentParserBuilder.newBuilder("git commit").addFlags(message).build();
+        var push = ArgumentParserBuilder.newBuilder("git push").setParseListener(new ParseListener() {
+            @Override
+            public void parsed(int tokenCount, long durationNanos, boolean succeeded) {
+                throw new NullPointerException();
+            }
+        }).build();
+        var git = ArgumentParserBuilder.newBuilder("git")
+                .addSubcommand("commit", "Record changes.", () -> commit)
+                .addSubcommand("push", "Update remote refs.", () -> push)
+                .build();
+        var directory = Files.createTempDirectory("haddis");
+        var socket = directory.resolve("git.sock");
+        try (var daemon = ParseDaemon.bind(socket, git, result -> "")) {
+            var serving = new Thread(() -> {
+                try {
+                    daemon.serve();
+                } catch (java.io.IOException e) {
+                    throw new java.io.UncheckedIOException(e);
+                }
+            });
+            serving.start();
+
+            var out = new StringBuilder();
+            var err = new StringBuilder();
+            assertEquals(2, ParseClient.run(socket, new String[]{"commit"}, 0, out, err));
+            assertEquals("Missing required flag: m\n\n" + commit.usage() + "\n", err.toString());
+
+            err.setLength(0);
+            assertEquals(2, ParseClient.run(socket, new String[]{"push"}, 0, out, err));
+            assertEquals("java.lang.NullPointerException\n\n" + push.usage() + "\n", err.toString());
+
+            daemon.close();
+            serving.join(10_000);
+        } finally {
+            Files.deleteIfExists(socket);
+            Files.delete(directory);
+        }
+    }
+
+    @Test
+    public void parseDaemonSocketFile() throws Exception {
+        var directory = Files.createTempDirectory("haddis");
+        var socket = directory.resolve("haddis.sock");
+        try {
+            Files.writeString(socket, "precious");
+            assertThrows(java.nio.file.FileAlreadyExistsException.class,
+                    () -> ParseDaemon.bind(socket, parser, result -> ""));
+            assertEquals("precious", Files.readString(socket));
+            Files.delete(socket);
+
+            try (var daemon = ParseDaemon.bind(socket, parser, result -> "")) {
+                assertEquals("rw-------", java.nio.file.attribute.PosixFilePermissions.toString(
+                        Files.getPosixFilePermissions(socket)));
+                assertThrows(java.nio.file.FileAlreadyExistsException.class,
+                        () -> ParseDaemon.bind(socket, parser, result -> ""));
+            }
+            assertFalse(Files.exists(socket));
+            try (var directoryEntries = Files.list(directory)) {
+                assertEquals(0, directoryEntries.count());
+            }
+
+            var exception = assertThrows(IllegalArgumentException.class, () -> ParseDaemon.bind(socket,
+                    ArgumentParserBuilder.newBuilder("haddis").expandResponseFiles().build(), result -> ""));
+            assertEquals("Parsers with response files cannot run in a daemon.", exception.getMessage());
+            assertFalse(Files.exists(socket));
+
+            // A stale socket is replaced, and a file put in the daemon's place survives its close.
+            var stale = java.nio.channels.ServerSocketChannel.open(java.net.StandardProtocolFamily.UNIX);
+            stale.bind(java.net.UnixDomainSocketAddress.of(socket));
+            stale.close();
+            var daemon = ParseDaemon.bind(socket, parser, result -> "");
+            Files.delete(socket);
+            Files.writeString(socket, "precious");
+            daemon.close();
+            assertEquals("precious", Files.readString(socket));
+        } finally {
+            Files.deleteIfExists(socket);
+            Files.delete(directory);
+        }
+    }
+
+    @Test
+    public void generatedParser() {
+        var options = HaddisOptionsParser.parse(new String[]{"-d", "--cert_file", "cert", "-a", "7", "a", "b"});
+        assertEquals("cert", options.certFile);
+        assertEquals(7, options.age);
+        assertTrue(options.dard);
+        assertEquals("404", options.levi);
+        assertEquals(1.5, options.weight);
+        assertEquals("a", options.source);
+        assertEquals("b", options.destination);
+        assertEquals(3, HaddisOptionsParser.parse(new String[]{"-c", "cert", "a", "b"}).age);
+        assertNull(HaddisOptionsParser.parseUnlessHelp(new String[]{"-q", "--help"}));
+
+        var age = FlagBuilder.newBuilder("-a", "Age of your pet.").useLongName("--age").requireValue()
+                .useIntValue(3).build();
+        var weight = FlagBuilder.newLongNameBuilder("--weight", "Weight of your pet.").requireValue().build();
+        var levi = FlagBuilder.newBuilder("-l", "Levi's haddi location").useLongName("--levi").requireValue().build();
+        var builtParser = ArgumentParserBuilder.newBuilder("haddis")
+                .setProgramDescription("cool program")
+                .addFlags(certFile, age, dard, levi, weight)
+                .addPositionalArguments(src, new PositionalArgument("destination", "destination file location"))
+                .build();
+        assertEquals(builtParser.usage(), HaddisOptionsParser.usage());
+
+        for (var args : List.of(new String[]{"-c"}, new String[]{"-c", "cert", "-q", "a", "b"},
+                new String[]{"-c", "cert", "a", "b", "c"}, new String[]{"-c", "cert", "a"},
+                new String[]{"a", "b"}, new String[]{"-c", "cert", "--age", "old", "a", "b"},
+                new String[]{"-c", "cert", "--wieght", "2", "a", "b"}, new String[]{"-d"})) {
+            var expected = assertThrows(RuntimeException.class, () -> builtParser.parse(args));
+            var actual = assertThrows(RuntimeException.class, () -> HaddisOptionsParser.parse(args));
+            assertEquals(expected.getClass(), actual.getClass());
+            assertEquals(expected.getMessage(), actual.getMessage());
+        }
+    }
+
+    @Test
+    public void flagConstraints() {
+        var json = FlagBuilder.newLongNameBuilder("--json", "JSON output.").build();
+        var yaml = FlagBuilder.newLongNameBuilder("--yaml", "YAML output.").build();
+        var constrainedParser = ArgumentParserBuilder.newBuilder("haddis")
+                .addFlags(certFile, dard, levi, frankie, json, yaml)
+                .addPositionalArguments(src, dst)
+                .addMutuallyExclusiveFlags(json, yaml)
+                .addAtLeastOneOfFlags(dard, levi)
+                .addFlagDependency(frankie, levi)
+                .build();
+
+        assertTrue(constrainedParser.parse(new String[]{"-c", "cert", "-d", "--json", "a", "b"}).hasAppeared(json));
+        var exclusive = assertThrows(IllegalStateException.class, () -> {
+            constrainedParser.parse(new String[]{"-c", "cert", "-d", "--json", "--yaml", "a", "b"});
+        });
+        assertEquals("At most 1 of these flags may appear: json, yaml", exclusive.getMessage());
+        var atLeastOne = assertThrows(IllegalStateException.class, () -> {
+            constrainedParser.parse(new String[]{"-c", "cert", "a", "b"});
+        });
+        assertEquals("At least 1 of these flags must appear: dard, levi", atLeastOne.getMessage());
+        var dependency = assertThrows(IllegalStateException.class, () -> {
+            constrainedParser.parse(new String[]{"-c", "cert", "-d", "-f", "meow", "a", "b"});
+        });
+        assertEquals("Flag frank requires flags: levi", dependency.getMessage());
+        constrainedParser.parse(new String[]{"-c", "cert", "-f", "meow", "-l", "home", "a", "b"});
+        var everything = assertThrows(IllegalStateException.class, () -> {
+            constrainedParser.parse(new String[]{"-f", "meow", "--json", "--yaml"});
+        });
+        assertEquals("Missing positional arguments: src, destination\n"
+                + "Missing required flag: cert_file\n"
+                + "At most 1 of these flags may appear: json, yaml\n"
+                + "At least 1 of these flags must appear: dard, levi\n"
+                + "Flag frank requires flags: levi", everything.getMessage());
+
+        // Count limits over flags whose ordinals span several words of the appeared bitset.
+        var builder = ArgumentParserBuilder.newBuilder("many");
+        var many = new Flag[200];
+        for (int i = 0; i < many.length; i++) {
+            many[i] = FlagBuilder.newLongNameBuilder(String.format("--flag_%03d", i), "Flag " + i).build();
+        }
+        var manyParser = builder.addFlags(many).limitFlagCount(2, 3, many[3], many[70], many[150], many[199]).build();
+        assertThrows(IllegalStateException.class, () -> manyParser.parse(new String[]{"--flag_070"}));
+        manyParser.parse(new String[]{"--flag_070", "--flag_199", "--flag_000"});
+        assertThrows(IllegalStateException.class, () -> {
+            manyParser.parse(new String[]{"--flag_003", "--flag_070", "--flag_150", "--flag_199"});
+        });
+        assertThrows(IllegalArgumentException.class, () -> {
+            ArgumentParserBuilder.newBuilder("haddis").addFlags(json).addMutuallyExclusiveFlags(json, yaml).build();
+        });
+    }
+
+    @Test
+    public void parseListenerAndFlightRecorderEvents() throws Exception {
+        var events = new ArrayList<String>();
+        var listener = new ParseListener() {
+            @Override
+            public void parsed(int tokenCount, long durationNanos, boolean succeeded) {
+                events.add("parsed " + tokenCount + " " + succeeded);
+            }
+
+            @Override
+            public void converted(Flag flag, long durationNanos, boolean succeeded) {
+                events.add("converted " + flag.getLongName().orElseThrow() + " " + succeeded);
+            }
+
+            @Override
+            public void validated(long durationNanos, boolean succeeded) {
+                events.add("validated " + succeeded);
+            }
+        };
+        var age = FlagBuilder.newLongNameBuilder("--age", "Age.").requireValue().useIntValue(3).build();
+        var observedParser = ArgumentParserBuilder.newBuilder("haddis")
+                .addFlags(certFile, age)
+                .addPositionalArguments(src, dst)
+                .setParseListener(listener)
+                .build();
+
+        var file = Files.createTempFile("haddis", ".jfr");
+        try (var recording = new Recording()) {
+            recording.enable("org.example.argumentparser.Parse");
+            recording.enable("org.example.argumentparser.Conversion");
+            recording.enable("org.example.argumentparser.Validation");
+            recording.start();
+            observedParser.parse(new String[]{"-c", "cert", "--age", "7", "a", "b"});
+            assertThrows(IllegalStateException.class, () -> observedParser.parse(new String[]{"--age", "7", "a"}));
+            recording.stop();
+            recording.dump(file);
+
+            assertEquals(List.of("converted cert_file true", "converted age true", "validated true", "parsed 6 true",
+                    "converted age true", "validated false", "parsed 3 false"), events);
+            var recorded = new ArrayList<String>();
+            for (var event : RecordingFile.readAllEvents(file)) {
+                var name = event.getEventType().getName();
+                recorded.add(name.substring(name.lastIndexOf('.') + 1) + " " + event.getBoolean("succeeded"));
+            }
+            recorded.sort(null);
+            assertEquals(List.of("Conversion true", "Conversion true", "Conversion true", "Parse false", "Parse true",
+                    "Validation false", "Validation true"), recorded);
+        } finally {
+            Files.delete(file);
+        }
+    }
+
+    @Test
+    public void subcommands() {
+        var built = new ArrayList<String>();
+        var message = FlagBuilder.newBuilder("-m", "Commit message.").requireValue().mustAppear().build();
+        var verbose = FlagBuilder.newBuilder("-v", "Verbose.").build();
+        var git = ArgumentParserBuilder.newBuilder("git")
+                .addFlags(verbose)
+                .addSubcommand("commit", "Record changes.", () -> {
+                    built.add("commit");
+                    return ArgumentParserBuilder.newBuilder("git commit").addFlags(message).build();
+                })
+                .addSubcommand("status", "Show the working tree status.", () -> {
+                    built.add("status");
+                    return ArgumentParserBuilder.newBuilder("git status").build();
+                })
+                .build();
+
+        assertTrue(git.usage().startsWith("USAGE: git [-v] <subcommand> ... \n"));
+        assertTrue(git.usage().contains("SUBCOMMANDS\n    commit : Record changes.\n"));
+        assertEquals(List.of(), built);
+
+        var result = git.parse(new String[]{"-v", "commit", "-m", "fix"});
+        assertTrue(result.hasAppeared(verbose));
+        assertEquals("commit", result.getSubcommand().orElseThrow());
+        assertEquals("fix", result.getSubcommandResult().orElseThrow().getValue(message));
+        git.parse(new String[]{"commit", "-m", "again"});
+        assertEquals(List.of("commit"), built);
+
+        assertFalse(git.parse(new String[]{}).getSubcommand().isPresent());
+        var unknown = assertThrows(IllegalArgumentException.class, () -> git.parse(new String[]{"push"}));
+        assertEquals("Unknown subcommand: push", unknown.getMessage());
+        assertThrows(IllegalStateException.class, () -> git.parse(new String[]{"commit"}));
+        assertThrows(IllegalStateException.class, () -> {
+            ArgumentParserBuilder.newBuilder("git").addSubcommand("status", "", () -> null)
+                    .addSubcommand("status", "", () -> null);
+        });
+    }
+
+    @Test
+    public void subcommandListenerAndResponseFiles() throws Exception {
+        var parses = new ArrayList<String>();
+        var message = FlagBuilder.newBuilder("-m", "Commit message.").requireValue().mustAppear().build();
+        var git = ArgumentParserBuilder.newBuilder("git")
+                .addSubcommand("commit", "Record changes.", () -> ArgumentParserBuilder.newBuilder("git commit")
+                        .addFlags(message)
+                        .expandResponseFiles()
+                        .setParseListener(new ParseListener() {
+                            @Override
+                            public void parsed(int tokenCount, long durationNanos, boolean succeeded) {
+                                parses.add(tokenCount + " " + succeeded);
+                            }
+                        })
+                        .build())
+                .build();
+        var file = Files.createTempFile("haddis", ".args");
+        try {
+            Files.writeString(file, "-m 'from a file'");
+            var result = git.parse(new String[]{"commit", "@" + file});
+            assertEquals("from a file", result.getSubcommandResult().orElseThrow().getValue(message));
+            assertThrows(IllegalStateException.class, () -> git.parse(new String[]{"commit"}));
+            assertEquals(List.of("2 true", "1 false"), parses);
+        } finally {
+            Files.delete(file);
+        }
+    }
+
+    @Test
+    public void environmentAndConfigFile() throws Exception {
+        var age = FlagBuilder.newLongNameBuilder("--age", "Age.").requireValue().useIntValue(3).build();
+        var file = Files.createTempFile("haddis", ".ini");
+        try {
+            Files.writeString(file, "# haddis\n[pets]\ncert_file = /etc/ini.pem\nage: 9\r\n"
+                    + "levi = \"C:\\Users\\l\u00e9vi\"\nunknown = 1\nd = true\n; levi = ignored\n");
+            var environment = new HashMap<String, String>();
+            var layeredParser = ArgumentParserBuilder.newBuilder("haddis")
+                    .addFlags(certFile, dard, levi, frankie, age)
+                    .addPositionalArguments(src, dst)
+                    .readFromEnvironment(certFile, "HADDIS_CERT")
+                    .readFromEnvironment(frankie, "HADDIS_FRANK")
+                    .readFromConfigFile(file)
+                    .useEnvironment(environment::get)
+                    .build();
+
+            var fromFile = layeredParser.parse(new String[]{"a", "b"});
+            assertEquals("/etc/ini.pem", fromFile.getValue(certFile));
+            assertEquals(9, fromFile.getInt(age));
+            assertEquals("C:\\Users\\l\u00e9vi", fromFile.getValue(levi).orElseThrow());
+            assertTrue(fromFile.hasAppeared(dard));
+            assertEquals("Meow!", fromFile.getValue(frankie));
+
+            environment.put("HADDIS_CERT", "/etc/env.pem");
+            environment.put("HADDIS_FRANK", "Purr");
+            var fromEnvironment = layeredParser.parse(new String[]{"--age", "4", "a", "b"});
+            assertEquals("/etc/env.pem", fromEnvironment.getValue(certFile));
+            assertEquals("Purr", fromEnvironment.getValue(frankie));
+            assertEquals(4, fromEnvironment.getInt(age));
+
+            var fromArguments = layeredParser.parse(new String[]{"-c", "/etc/argv.pem", "a", "b"});
+            assertEquals("/etc/argv.pem", fromArguments.getValue(certFile));
+
+            // The file is read once per parser.
+            Files.writeString(file, "d = maybe\n");
+            environment.clear();
+            assertEquals("/etc/ini.pem", layeredParser.parse(new String[]{"a", "b"}).getValue(certFile));
+            var rereadingParser = ArgumentParserBuilder.newBuilder("haddis")
+                    .addFlags(dard)
+                    .readFromConfigFile(file)
+                    .build();
+            assertThrows(IllegalArgumentException.class, () -> rereadingParser.parse(new String[]{}));
+        } finally {
+            Files.delete(file);
+        }
+    }
+
+    @Test
+    public void shellCompletion() {
+        var format = FlagBuilder.newLongNameBuilder("--format", "Output format.").requireValue().build();
+        var fast = FlagBuilder.newLongNameBuilder("--fast", "Go fast.").build();
+        var completingParser = ArgumentParserBuilder.newBuilder("haddis")
+                .addFlags(certFile, dard, format, fast)
+                .addSubcommand("copy", "Copy a file.", () -> ArgumentParserBuilder.newBuilder("haddis copy")
+                        .addFlags(levi)
+                        .addPositionalArguments(src, dst)
+                        .build())
+                .addSubcommand("compare", "Compare files.", () -> {
+                    throw new AssertionError("Only the selected subcommand is built.");
+                })
+                .completeValues(format, prefix -> List.of("json", "yaml").stream()
+                        .filter(value -> value.startsWith(prefix)).collect(Collectors.toList()))
+                .enableShellCompletion()
+                .build();
+
+        assertEquals(List.of("--fast", "--format"), completingParser.complete("--f"));
+        assertEquals(List.of("--cert_file", "--dard", "--fast", "--format", "--help", "-c", "-d", "-h"),
+                completingParser.complete("-"));
+        assertEquals(List.of("json"), completingParser.complete("--format", "j"));
+        assertEquals(List.of("compare", "copy"), completingParser.complete("-c", "cert", "co"));
+        assertEquals(List.of("--levi"), completingParser.complete("-d", "copy", "a", "--l"));
+        assertEquals(List.of(), completingParser.complete("-c", ""));
+
+        var tag = FlagBuilder.newLongNameBuilder("--tag", "Tags.").requireValue().repeatable().build();
+        var taggingParser = ArgumentParserBuilder.newBuilder("haddis")
+                .addFlags(tag)
+                .addPositionalArguments(src)
+                .addSubcommand("copy", "Copy a file.", () -> ArgumentParserBuilder.newBuilder("haddis copy").build())
+                .build();
+        assertEquals(List.of("copy"), taggingParser.complete("--tag=x", "a", "--tag=y", "c"));
+
+        assertTrue(completingParser.completionScript(Shell.BASH).contains("complete -o default -F _haddis_complete haddis"));
+        assertTrue(completingParser.completionScript(Shell.ZSH).startsWith("#compdef haddis\n"));
+        assertTrue(completingParser.completionScript(Shell.FISH).contains("haddis __complete (commandline -opc)"));
+    }
+
+    @Test
+    public void batchParsing() throws Exception {
+        int lineCount = 5000;
+        var ordered = new ArrayList<BatchResult>();
+        parser.parseAll(IntStream.range(0, lineCount).mapToObj(i -> i % 7 == 0
+                ? new String[]{"a", "b"}
+                : new String[]{"-c", "cert" + i, "src" + i, "dst"}), true, ordered::add);
+        assertEquals(lineCount, ordered.size());
+        for (int i = 0; i < lineCount; i++) {
+            var result = ordered.get(i);
+            assertEquals(i, result.getIndex());
+            assertEquals(i % 7 != 0, result.isSuccess());
+            if (result.isSuccess()) {
+                assertEquals("src" + i, result.getResult().orElseThrow().getValue(src));
+            } else {
+                assertTrue(result.getError().orElseThrow() instanceof IllegalStateException);
+            }
+        }
+
+        var unordered = new ArrayList<BatchResult>();
+        parser.parseAll(IntStream.range(0, lineCount).mapToObj(i -> new String[]{"-c", "x", "a", "b"}), false,
+                unordered::add);
+        assertEquals(lineCount, unordered.stream().filter(BatchResult::isSuccess).count());
+        assertEquals(lineCount, unordered.stream().mapToLong(BatchResult::getIndex).distinct().count());
+
+        var file = Files.createTempFile("haddis", ".lines");
+        try {
+            Files.writeString(file, "-c 'my cert.pem' a b\n--dard \"\" -c c a b\n-c \"unterminated a b\n--help\n");
+            var results = new ArrayList<BatchResult>();
+            parser.parseAll(file, true, results::add);
+            assertEquals(4, results.size());
+            assertEquals("my cert.pem", results.get(0).getResult().orElseThrow().getValue(certFile));
+            assertFalse(results.get(1).isSuccess());
+            assertTrue(results.get(2).getError().orElseThrow().getMessage().startsWith("Unterminated quote"));
+            assertEquals("Help requested", results.get(3).getError().orElseThrow().getMessage());
+        } finally {
+            Files.delete(file);
+        }
+    }
+
+    @Test
+    public void batchParsingErrors() {
+        var age = FlagBuilder.newBuilder("-a", "Age.").requireValue().useConverter(raw -> {
+            if (raw.equals("-1")) {
+                throw new AssertionError("negative age");
+            }
+            return Integer.valueOf(raw);
+        }).build();
+        var agingParser = ArgumentParserBuilder.newBuilder("haddis").addFlags(age).build();
+        var error = assertTimeoutPreemptively(Duration.ofSeconds(30), () -> assertThrows(AssertionError.class,
+                () -> agingParser.parseAll(IntStream.range(0, 5000).mapToObj(i -> new String[]{"-a",
+                        i == 3000 ? "-1" : "1"}), true, result -> { })));
+        assertEquals("negative age", error.getMessage());
+
+        var inputError = assertTimeoutPreemptively(Duration.ofSeconds(30), () -> assertThrows(
+                ExceptionInInitializerError.class, () -> agingParser.parseAll(IntStream.range(0, 5000)
+                        .mapToObj(i -> {
+                            if (i == 4000) {
+                                throw new ExceptionInInitializerError("broken input");
+                            }
+                            return new String[]{"-a", "1"};
+                        }), false, result -> { })));
+        assertEquals("broken input", inputError.getMessage());
+    }
+
+    @Test
+    public void converterCache() throws Exception {
+        var conversions = new AtomicInteger();
+        var port = FlagBuilder.newBuilder("-p", "Port.").requireValue().useConverter(raw -> {
+            conversions.incrementAndGet();
+            return Integer.valueOf(raw);
+        }).build();
+        var cache = new ConverterCache(2);
+        var cachingParser = ArgumentParserBuilder.newBuilder("haddis")
+                .addFlags(port)
+                .cacheConversions(port, cache)
+                .build();
+
+        for (int i = 0; i < 10; i++) {
+            assertEquals(8080, cachingParser.parse(new String[]{"-p", "8080"}).getValue(port).orElseThrow());
+        }
+        assertEquals(1, conversions.get());
+        assertEquals(9, cache.getHitCount());
+        assertEquals(1, cache.getMissCount());
+
+        cachingParser.parse(new String[]{"-p", "1"});
+        cachingParser.parse(new String[]{"-p", "2"});
+        cachingParser.parse(new String[]{"-p", "3"});
+        assertEquals(2, cache.size());
+        assertEquals(2, cache.getEvictionCount());
+
+        assertThrows(IllegalArgumentException.class, () -> cachingParser.parse(new String[]{"-p", "x"}));
+        assertThrows(IllegalArgumentException.class, () -> cachingParser.parse(new String[]{"-p", "x"}));
+        assertEquals(6, conversions.get());
+
+        var expiring = new ConverterCache(10, Duration.ofMillis(1));
+        var expiringParser = ArgumentParserBuilder.newBuilder("haddis")
+                .addFlags(port)
+                .cacheConversions(port, expiring)
+                .build();
+        expiringParser.parse(new String[]{"-p", "9"});
+        Thread.sleep(5);
+        expiringParser.parse(new String[]{"-p", "9"});
+        assertEquals(2, expiring.getMissCount());
+
+        assertThrows(IllegalArgumentException.class, () -> ArgumentParserBuilder.newBuilder("haddis")
+                .cacheConversions(levi, cache));
+        assertThrows(IllegalArgumentException.class, () -> ArgumentParserBuilder.newBuilder("haddis")
+                .cacheConversions(dard, new ConverterCache(2)));
+        assertThrows(IllegalArgumentException.class, () -> new ConverterCache(0));
+    }
+
+    @Test
+    public void unknownFlagSuggestions() {
+        var error = assertThrows(IllegalArgumentException.class,
+                () -> parser.parse(new String[]{"--cert_fiel", "cert", "src", "dst"}));
+        assertEquals("Invalid long name encountered: cert_fiel. Did you mean --cert_file?", error.getMessage());
+        error = assertThrows(IllegalArgumentException.class,
+                () -> parser.parse(new String[]{"-c", "cert", "--zzzzzz", "src", "dst"}));
+        assertEquals("Invalid long name encountered: zzzzzz", error.getMessage());
+        error = assertThrows(IllegalArgumentException.class,
+                () -> parser.parse(new String[]{"-c", "cert", "-q", "src", "dst"}));
+        assertEquals("Invalid short name encountered: q", error.getMessage());
+
+        var builder = ArgumentParserBuilder.newBuilder("many");
+        for (int i = 0; i < 5000; i++) {
+            builder.addFlag(FlagBuilder.newLongNameBuilder("--flag_" + i, "Flag " + i + ".").build());
+        }
+        var manyParser = builder.build();
+        assertEquals(List.of("--flag_1234", "--flag_1034", "--flag_1134"), manyParser.suggestFlags("--flag_1234", 3));
+        assertEquals(List.of("--flag_4999"), manyParser.suggestFlags("falg_4999", 1));
+        assertEquals(List.of(), manyParser.suggestFlags("--verbose", 3));
+    }
+
+    @Test
+    public void repeatableFlags() {
+        var include = FlagBuilder.newBuilder("-I", "Include directory.").requireValue().repeatable().build();
+        var tag = FlagBuilder.newLongNameBuilder("--tag", "Tags.").requireValue().repeatable().splitOn(',').build();
+        var port = FlagBuilder.newBuilder("-p", "Ports.").requireValue().repeatable()
+                .useConverter(Integer::valueOf).build();
+        var repeatingParser = ArgumentParserBuilder.newBuilder("haddis")
+                .addFlags(include, tag, port)
+                .addPositionalArguments(src)
+                .build();
+
+        var args = new ArrayList<String>();
+        for (int i = 0; i < 10_000; i++) {
+            args.add("-I");
+            args.add("dir" + i);
+        }
+        args.addAll(List.of("--tag=a,b", "--tag", "c", "-p", "80", "--tag=,d", "-p", "443", "in"));
+        var result = repeatingParser.parse(args.toArray(new String[0]));
+
+        var includes = result.getValues(include);
+        assertEquals(10_000, includes.size());
+        assertEquals("dir0", includes.get(0));
+        assertEquals("dir9999", includes.get(9_999));
+        assertEquals(List.of("a", "b", "c", "", "d"), result.getValues(tag));
+        assertEquals(List.of(80, 443), result.getValues(port));
+        assertEquals("in", result.getValue(src));
+        assertThrows(UnsupportedOperationException.class, () -> result.getValues(port).add(8080));
+
+        var empty = repeatingParser.parse(new String[]{"in"});
+        assertTrue(empty.getValues(include).isEmpty());
+        assertFalse(empty.hasAppeared(include));
+        assertThrows(IllegalArgumentException.class, () -> repeatingParser.parse(new String[]{"-p", "x", "in"}));
+        assertTrue(repeatingParser.usage().contains("--tag <value>..."));
+        assertThrows(IllegalArgumentException.class, () -> FlagBuilder.newLongNameBuilder("--tag", "Tags.")
+                .requireValue().repeatable().splitOn('_'));
+        assertThrows(IllegalStateException.class, () -> FlagBuilder.newLongNameBuilder("--tag", "Tags.")
+                .requireValue().convertLazily().repeatable());
+    }
+
+    @Test
+    public void schemaSnapshot() throws Exception {
+        Function<String, Integer> toInteger = Integer::valueOf;
+        var registry = new ConverterRegistry().register("integer", toInteger);
+        var age = FlagBuilder.newBuilder("-a", "Age of your pet.").useLongName("--age").requireValue()
+                .useConverter(toInteger).useDefaultValue(3).build();
+        var weight = FlagBuilder.newLongNameBuilder("--weight", "Weight of your pet.").requireValue()
+                .useDoubleValue(1.5).build();
+        var tag = FlagBuilder.newLongNameBuilder("--tag", "Tags.").requireValue().repeatable().splitOn(',').build();
+        var builtParser = ArgumentParserBuilder.newBuilder("haddis")
+                .setProgramDescription("cool program")
+                .addFlags(certFile, dard, levi, frankie, age, weight, tag)
+                .addPositionalArguments(src, dst)
+                .expandResponseFiles()
+                .build();
+
+        var file = Files.createTempFile("haddis", ".schema");
+        try {
+            SchemaSnapshot.write(builtParser, registry, file);
+            var snapshot = SchemaSnapshot.load(file, registry);
+            var loadedParser = snapshot.getParser();
+            assertEquals(builtParser.usage(), loadedParser.usage());
+
+            var args = new String[]{"-c", "cert", "-d", "--age", "7", "--weight", "2.5", "--tag=a,b", "a", "b"};
+            var built = builtParser.parse(args);
+            var loaded = loadedParser.parse(args);
+            var loadedCertFile = snapshot.getFlag("-c", Flag.RequiredFlagWithValue.class);
+            var loadedAge = snapshot.getFlag("--age", Flag.OptionalFlagWithDefaultValue.class);
+            var loadedFrankie = snapshot.getFlag("-f", Flag.OptionalFlagWithDefaultValue.class);
+            assertEquals(built.getValue(certFile), loaded.getValue(loadedCertFile));
+            assertEquals(built.hasAppeared(dard), loaded.hasAppeared(snapshot.getFlag("--dard", Flag.class)));
+            assertEquals(built.getValue(age), loaded.getValue(loadedAge));
+            var loadedWeight = snapshot.getFlag("--weight", Flag.DoubleFlag.class);
+            assertEquals(built.getDouble(weight), loaded.getDouble(loadedWeight));
+            assertEquals(built.getValues(tag), loaded.getValues(snapshot.getFlag("--tag", Flag.RepeatableFlag.class)));
+            assertEquals(built.getValue(frankie), loaded.getValue(loadedFrankie));
+            assertEquals(built.getValue(dst), loaded.getValue(snapshot.getPositionalArgument("destination")));
+
+            for (var invalid : List.of(new String[]{"a", "b"}, new String[]{"-c", "x", "--age", "old", "a", "b"},
+                    new String[]{"-c", "x", "--levii", "l", "a", "b"})) {
+                var expected = assertThrows(RuntimeException.class, () -> builtParser.parse(invalid));
+                var actual = assertThrows(RuntimeException.class, () -> loadedParser.parse(invalid));
+                assertEquals(expected.getMessage(), actual.getMessage());
+            }
+
+            assertThrows(IllegalArgumentException.class,
+                    () -> SchemaSnapshot.toBytes(builtParser, new ConverterRegistry()));
+            assertThrows(IllegalArgumentException.class, () -> SchemaSnapshot.load(file, new ConverterRegistry()));
+            var constrainedParser = ArgumentParserBuilder.newBuilder("haddis")
+                    .addFlags(certFile, dard)
+                    .addMutuallyExclusiveFlags(certFile, dard)
+                    .build();
+            assertThrows(IllegalStateException.class, () -> SchemaSnapshot.toBytes(constrainedParser, registry));
+        } finally {
+            Files.delete(file);
+        }
+    }
+
+    @Test
+    public void incrementalParseSession() {
+        var conversions = new AtomicInteger();
+        var age = FlagBuilder.newBuilder("-a", "Age of your pet.").requireValue().useConverter(raw -> {
+            conversions.incrementAndGet();
+            return Integer.valueOf(raw);
+        }).build();
+        var tag = FlagBuilder.newLongNameBuilder("--tag", "Tags.").requireValue().repeatable().splitOn(',').build();
+        var sessionParser = ArgumentParserBuilder.newBuilder("haddis")
+                .addFlags(certFile, dard, levi, frankie, age, tag)
+                .addPositionalArguments(src, dst)
+                .build();
+        var session = sessionParser.newSession();
+
+        // Typed one character at a time, with a typo fixed halfway, each state must match a fresh parse.
+        var typed = "-c 'my cert' --tag=x,y -a 7 --levv";
+        var edits = new ArrayList<String>();
+        for (int i = 1; i <= typed.length(); i++) {
+            edits.add(typed.substring(0, i));
+        }
+        var fixed = "-c 'my cert' --tag=x,y -a 7 --levi 4 src dst --tag z";
+        edits.add(typed.substring(0, typed.length() - 1));
+        for (int i = typed.length(); i <= fixed.length(); i++) {
+            edits.add(fixed.substring(0, i));
+        }
+        edits.add("-c 'my cert' --tag=x,y -a 8 --levi 4 src dst --tag z");
+        for (String line : edits) {
+            session.update(line);
+            ParseResult expected = null;
+            RuntimeException expectedError = null;
+            try {
+                var args = new ArrayList<String>();
+                var quoteCount = line.chars().filter(c -> c == '\'').count();
+                if (quoteCount % 2 == 1) {
+                    throw new IllegalArgumentException("Unterminated quote in command line: " + line);
+                }
+                for (String arg : line.replace("'my cert'", "my_cert").split(" ")) {
+                    if (!arg.isEmpty()) {
+                        args.add(arg.equals("my_cert") ? "my cert" : arg);
+                    }
+                }
+                expected = sessionParser.parse(args.toArray(new String[0]));
+            } catch (RuntimeException e) {
+                expectedError = e;
+            }
+            assertFalse(session.isHelpRequested());
+            if (expectedError != null) {
+                assertEquals(expectedError.getMessage(), session.getError().orElseThrow().getMessage(), line);
+                assertTrue(session.getResult().isEmpty());
+            } else {
+                var actual = session.getResult().orElseThrow();
+                assertEquals(expected.getValue(certFile), actual.getValue(certFile));
+                assertEquals(expected.getValue(levi), actual.getValue(levi));
+                assertEquals(expected.getValue(age), actual.getValue(age));
+                assertEquals(expected.getValues(tag), actual.getValues(tag));
+                assertEquals(expected.getValue(dst), actual.getValue(dst));
+            }
+        }
+        assertEquals(List.of("x", "y", "z"), session.getResult().orElseThrow().getValues(tag));
+        assertEquals(8, session.getResult().orElseThrow().getValue(age).orElseThrow());
+        assertTrue(session.getRescannedCount() <= 7);
+
+        conversions.set(0);
+        session.update("-c 'my cert' --tag=x,y -a 8 --levi 4 src dst --tag w");
+        assertEquals(1, session.getRescannedCount());
+        assertEquals(0, conversions.get());
+        session.update("-c 'my cert' -d --tag=x,y -a 8 --levi 4 src dst --tag w");
+        assertEquals(0, conversions.get());
+        assertTrue(session.getResult().orElseThrow().hasAppeared(dard));
+
+        session.update("-c 'my cert' -h src");
+        assertTrue(session.isHelpRequested());
+        session.update("-c 'my cert' src");
+        assertFalse(session.isHelpRequested());
+        assertEquals("Missing positional argument: destination", session.getError().orElseThrow().getMessage());
+
+        assertThrows(IllegalStateException.class, () -> ArgumentParserBuilder.newBuilder("haddis")
+                .expandResponseFiles().build().newSession());
+    }
+
+    @Test
+    public void byteEncodedArguments() {
+        var args = new String[] {"--cert_file", "cl\u00e9.pem", "-d", "--frank", "\u00df", "~/src", "~/dst"};
+        var nulTerminated = String.join("\0", args).getBytes(StandardCharsets.UTF_8);
+        var lengthPrefixed = ByteBuffer.allocate(256);
+        for (String arg : args) {
+            var bytes = arg.getBytes(StandardCharsets.UTF_8);
+            lengthPrefixed.putInt(bytes.length).put(bytes);
+        }
+        lengthPrefixed.flip();
+        var direct = ByteBuffer.allocateDirect(nulTerminated.length + 3).put((byte) 'x').put(nulTerminated)
+                .put((byte) 0).flip().position(1);
+
+        var expected = parser.parse(args);
+        for (var result : List.of(
+                parser.parse(ByteBuffer.wrap(nulTerminated), ArgumentFraming.NUL_TERMINATED),
+                parser.parse(direct, ArgumentFraming.NUL_TERMINATED),
+                parser.parse(lengthPrefixed, ArgumentFraming.LENGTH_PREFIXED))) {
+            assertEquals(expected.getValue(certFile), result.getValue(certFile));
+            assertTrue(result.hasAppeared(dard));
+            assertEquals("\u00df", result.getValue(frankie));
+            assertEquals(expected.getValue(src), result.getValue(src));
+            assertEquals("~/dst", result.getValue(dst));
+        }
+        assertEquals(1, direct.position());
+        assertEquals(0, lengthPrefixed.position());
+
+        var typo = "-c\0cert\0--levv\0src\0dst".getBytes(StandardCharsets.UTF_8);
+        var exception = assertThrows(IllegalArgumentException.class,
+                () -> parser.parse(ByteBuffer.wrap(typo), ArgumentFraming.NUL_TERMINATED));
+        assertEquals("Invalid long name encountered: levv. Did you mean --levi?", exception.getMessage());
+        var extra = "-c\0cert\0src\0dst\0n\u00e9".getBytes(StandardCharsets.UTF_8);
+        exception = assertThrows(IllegalArgumentException.class,
+                () -> parser.parse(ByteBuffer.wrap(extra), ArgumentFraming.NUL_TERMINATED));
+        assertEquals("Unrecognized positional argument with value: n\u00e9", exception.getMessage());
+
+        var truncated = ByteBuffer.allocate(8).putInt(2).put((byte) '-').put((byte) 'd').putShort((short) 1).flip();
+        exception = assertThrows(IllegalArgumentException.class,
+                () -> parser.parse(truncated, ArgumentFraming.LENGTH_PREFIXED));
+        assertEquals("Truncated argument length at byte 6", exception.getMessage());
+    }
+}
@@ -0,0 +1,30 @@
+package org.example.argumentparser.test;
+
+import org.example.argumentparser.annotation.CommandLine;
+import org.example.argumentparser.annotation.Option;
+import org.example.argumentparser.annotation.Positional;
+
+@CommandLine(programName = "haddis", description = "cool program")
+class HaddisOptions {
+
+    @Option(shortName = "c", longName = "cert_file", description = "The certificate file.", required = true)
+    String certFile;
+
+    @Option(shortName = "a", longName = "age", description = "Age of your pet.", defaultValue = "3")
+    int age;
+
+    @Option(shortName = "d", longName = "dard", description = "Darde Disco.")
+    boolean dard;
+
+    @Option(shortName = "l", longName = "levi", description = "Levi's haddi location")
+    String levi = "404";
+
+    @Option(longName = "weight", description = "Weight of your pet.")
+    double weight = 1.5;
+
+    @Positional(name = "src", description = "source file location")
+    String source;
+
+    @Positional(name = "destination", description = "destination file location")
+    String destination;
+}